@@ -0,0 +1,40 @@
+package com.github.tablayout.benchmark;
+
+import com.github.tablayout.utils.IndicatorPoint;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 指示器动画每帧的插值计算
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IndicatorPointBenchmark {
+    private final IndicatorPoint mStart = new IndicatorPoint();
+    private final IndicatorPoint mEnd = new IndicatorPoint();
+    private final IndicatorPoint mPoint = new IndicatorPoint();
+    private float mFraction;
+
+    @Setup
+    public void setUp() {
+        mStart.set(0, 120);
+        mEnd.set(480, 640);
+    }
+
+    @Benchmark
+    public IndicatorPoint evaluate() {
+        // 包含回弹时超出[0,1]的进度
+        mFraction = mFraction >= 1.2f ? 0f : mFraction + 0.016f;
+        mPoint.evaluate(mFraction, mStart, mEnd);
+        return mPoint;
+    }
+}
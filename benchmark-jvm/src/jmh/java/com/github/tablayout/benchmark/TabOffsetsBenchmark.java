@@ -0,0 +1,49 @@
+package com.github.tablayout.benchmark;
+
+import com.github.tablayout.utils.TabOffsets;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * tab宽度表的重建和按坐标查找tab
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TabOffsetsBenchmark {
+    @Param({"5", "50", "500"})
+    public int tabCount;
+
+    private final TabOffsets mOffsets = new TabOffsets();
+    private int mX;
+
+    @Setup
+    public void setUp() {
+        mOffsets.setCount(tabCount);
+        for (int i = 0; i < tabCount; i++) {
+            mOffsets.setWidth(i, 80 + (i % 7) * 12);
+        }
+        mOffsets.rebuild();
+    }
+
+    @Benchmark
+    public int rebuild() {
+        mOffsets.rebuild();
+        return mOffsets.getTotalWidth();
+    }
+
+    @Benchmark
+    public int indexAt() {
+        mX = (mX + 37) % mOffsets.getTotalWidth();
+        return mOffsets.indexAt(mX);
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.tablayout.benchmark;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.viewpager.widget.PagerAdapter;
+import androidx.viewpager.widget.ViewPager;
+
+import com.github.tablayout.listener.ITab;
+import com.github.tablayout.widget.Tab;
+
+import java.util.ArrayList;
+
+/**
+ * 基准测试中创建和布局TabLayout的工具方法
+ */
+final class BenchmarkViews {
+    static final int WIDTH = 1080;
+    static final int HEIGHT = 144;
+
+    private BenchmarkViews() {
+    }
+
+    static Context getContext() {
+        return InstrumentationRegistry.getInstrumentation().getContext();
+    }
+
+    /**
+     * TabLayout只支持从布局创建
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends View> T inflate(int layoutId) {
+        return (T) LayoutInflater.from(getContext()).inflate(layoutId, null, false);
+    }
+
+    static void layout(View view) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    static Canvas createCanvas() {
+        return new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+    }
+
+    static String[] titles(int count) {
+        String[] titles = new String[count];
+        for (int i = 0; i < count; i++) {
+            titles[i] = "Tab " + i;
+        }
+        return titles;
+    }
+
+    static ArrayList<ITab> tabs(int count) {
+        ArrayList<ITab> tabs = new ArrayList<>(count);
+        for (String title : titles(count)) {
+            tabs.add(new Tab(title, 0, 0));
+        }
+        return tabs;
+    }
+
+    /**
+     * 只提供页面数量的ViewPager,用于关联SlidingTabLayout
+     */
+    static ViewPager pager(int count) {
+        ViewPager pager = new ViewPager(getContext());
+        pager.setAdapter(new PagerAdapter() {
+            @Override
+            public int getCount() {
+                return count;
+            }
+
+            @Override
+            public boolean isViewFromObject(@NonNull View view, @NonNull Object object) {
+                return view == object;
+            }
+
+            @NonNull
+            @Override
+            public Object instantiateItem(@NonNull ViewGroup container, int position) {
+                View page = new View(container.getContext());
+                container.addView(page);
+                return page;
+            }
+
+            @Override
+            public void destroyItem(@NonNull ViewGroup container, int position, @NonNull Object object) {
+                container.removeView((View) object);
+            }
+        });
+        return pager;
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.tablayout.benchmark;
+
+import android.graphics.Canvas;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.annotation.UiThreadTest;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.github.tablayout.CommonTabLayout;
+import com.github.tablayout.SlidingTabLayout;
+import com.github.tablayout.benchmark.test.R;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * 各种指示器样式下绘制TabLayout的耗时。使用软件Canvas,不包含RenderNode缓存的收益
+ */
+@RunWith(AndroidJUnit4.class)
+public class IndicatorDrawBenchmark {
+    /**
+     * 与tl_indicator_style的取值对应
+     */
+    private static final int STYLE_NORMAL = 0;
+    private static final int STYLE_TRIANGLE = 1;
+    private static final int STYLE_BLOCK = 2;
+    private static final int TAB_COUNT = 10;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Test
+    @UiThreadTest
+    public void commonTabLayout_normal() {
+        benchmarkCommonDraw(STYLE_NORMAL);
+    }
+
+    @Test
+    @UiThreadTest
+    public void commonTabLayout_triangle() {
+        benchmarkCommonDraw(STYLE_TRIANGLE);
+    }
+
+    @Test
+    @UiThreadTest
+    public void commonTabLayout_block() {
+        benchmarkCommonDraw(STYLE_BLOCK);
+    }
+
+    @Test
+    @UiThreadTest
+    public void slidingTabLayoutWidthEqualTitle_normal() {
+        benchmarkSlidingScroll(STYLE_NORMAL);
+    }
+
+    @Test
+    @UiThreadTest
+    public void slidingTabLayoutWidthEqualTitle_block() {
+        benchmarkSlidingScroll(STYLE_BLOCK);
+    }
+
+    private void benchmarkCommonDraw(int indicatorStyle) {
+        CommonTabLayout tabLayout = BenchmarkViews.inflate(R.layout.benchmark_common_tab);
+        tabLayout.setIndicatorStyle(indicatorStyle);
+        tabLayout.setTabData(BenchmarkViews.tabs(TAB_COUNT));
+        BenchmarkViews.layout(tabLayout);
+        Canvas canvas = BenchmarkViews.createCanvas();
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            tabLayout.draw(canvas);
+        }
+    }
+
+    /**
+     * 指示器宽度与标题相同时,每次绘制都要通过calcIndicatorRect按标题宽度重新计算指示器位置
+     */
+    private void benchmarkSlidingScroll(int indicatorStyle) {
+        SlidingTabLayout tabLayout = BenchmarkViews.inflate(R.layout.benchmark_sliding_tab);
+        tabLayout.setIndicatorStyle(indicatorStyle);
+        tabLayout.setIndicatorWidthEqualTitle(true);
+        tabLayout.setViewPager(BenchmarkViews.pager(TAB_COUNT), BenchmarkViews.titles(TAB_COUNT));
+        BenchmarkViews.layout(tabLayout);
+        Canvas canvas = BenchmarkViews.createCanvas();
+
+        BenchmarkState state = benchmarkRule.getState();
+        int frame = 0;
+        while (state.keepRunning()) {
+            frame = (frame + 1) % 100;
+            tabLayout.onPageScrolled(frame % (TAB_COUNT - 1), frame / 100f, 0);
+            tabLayout.draw(canvas);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.tablayout.benchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.annotation.UiThreadTest;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.github.tablayout.CommonTabLayout;
+import com.github.tablayout.SegmentTabLayout;
+import com.github.tablayout.SlidingTabLayout;
+import com.github.tablayout.benchmark.test.R;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * 重新创建全部tab并布局的耗时
+ */
+@RunWith(AndroidJUnit4.class)
+public class NotifyDataSetChangedBenchmark {
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Test
+    @UiThreadTest
+    public void commonTabLayout_5() {
+        benchmarkCommon(5);
+    }
+
+    @Test
+    @UiThreadTest
+    public void commonTabLayout_50() {
+        benchmarkCommon(50);
+    }
+
+    @Test
+    @UiThreadTest
+    public void commonTabLayout_500() {
+        benchmarkCommon(500);
+    }
+
+    @Test
+    @UiThreadTest
+    public void segmentTabLayout_5() {
+        benchmarkSegment(5);
+    }
+
+    @Test
+    @UiThreadTest
+    public void segmentTabLayout_50() {
+        benchmarkSegment(50);
+    }
+
+    @Test
+    @UiThreadTest
+    public void segmentTabLayout_500() {
+        benchmarkSegment(500);
+    }
+
+    @Test
+    @UiThreadTest
+    public void slidingTabLayout_5() {
+        benchmarkSliding(5);
+    }
+
+    @Test
+    @UiThreadTest
+    public void slidingTabLayout_50() {
+        benchmarkSliding(50);
+    }
+
+    @Test
+    @UiThreadTest
+    public void slidingTabLayout_500() {
+        benchmarkSliding(500);
+    }
+
+    private void benchmarkCommon(int tabCount) {
+        CommonTabLayout tabLayout = BenchmarkViews.inflate(R.layout.benchmark_common_tab);
+        tabLayout.setTabData(BenchmarkViews.tabs(tabCount));
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            tabLayout.notifyDataSetChanged();
+            BenchmarkViews.layout(tabLayout);
+        }
+    }
+
+    private void benchmarkSegment(int tabCount) {
+        SegmentTabLayout tabLayout = BenchmarkViews.inflate(R.layout.benchmark_segment_tab);
+        tabLayout.setTabData(BenchmarkViews.titles(tabCount));
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            tabLayout.notifyDataSetChanged();
+            BenchmarkViews.layout(tabLayout);
+        }
+    }
+
+    private void benchmarkSliding(int tabCount) {
+        SlidingTabLayout tabLayout = BenchmarkViews.inflate(R.layout.benchmark_sliding_tab);
+        tabLayout.setViewPager(BenchmarkViews.pager(tabCount), BenchmarkViews.titles(tabCount));
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            tabLayout.notifyDataSetChanged();
+            BenchmarkViews.layout(tabLayout);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.tablayout.benchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.annotation.UiThreadTest;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.github.tablayout.CommonTabLayout;
+import com.github.tablayout.SegmentTabLayout;
+import com.github.tablayout.benchmark.test.R;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * 切换选中tab的耗时,关闭了指示器动画,主要是updateTabSelection更新tab样式的开销
+ */
+@RunWith(AndroidJUnit4.class)
+public class TabSelectionBenchmark {
+    private static final int TAB_COUNT = 50;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Test
+    @UiThreadTest
+    public void commonTabLayout() {
+        CommonTabLayout tabLayout = BenchmarkViews.inflate(R.layout.benchmark_common_tab);
+        tabLayout.setTabData(BenchmarkViews.tabs(TAB_COUNT));
+        BenchmarkViews.layout(tabLayout);
+
+        BenchmarkState state = benchmarkRule.getState();
+        int tab = 0;
+        while (state.keepRunning()) {
+            tab = (tab + 1) % TAB_COUNT;
+            tabLayout.setCurrentTab(tab);
+        }
+    }
+
+    @Test
+    @UiThreadTest
+    public void segmentTabLayout() {
+        SegmentTabLayout tabLayout = BenchmarkViews.inflate(R.layout.benchmark_segment_tab);
+        tabLayout.setTabData(BenchmarkViews.titles(TAB_COUNT));
+        BenchmarkViews.layout(tabLayout);
+
+        BenchmarkState state = benchmarkRule.getState();
+        int tab = 0;
+        while (state.keepRunning()) {
+            tab = (tab + 1) % TAB_COUNT;
+            tabLayout.setCurrentTab(tab);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.github.tablayout;
 
-import android.animation.TypeEvaluator;
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
 import android.animation.ValueAnimator;
 import android.content.Context;
 import android.content.res.TypedArray;
@@ -9,13 +10,20 @@ import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
+import android.graphics.drawable.StateListDrawable;
 import android.os.Bundle;
 import android.os.Parcelable;
+import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+import android.util.StateSet;
 import android.util.TypedValue;
 import android.view.Gravity;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.animation.OvershootInterpolator;
@@ -25,18 +33,38 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.core.content.ContextCompat;
+import androidx.core.view.ViewCompat;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentActivity;
 
 
+import com.github.tablayout.listener.IIconTab;
 import com.github.tablayout.listener.ITab;
 import com.github.tablayout.listener.OnTabSelectListener;
+import com.github.tablayout.listener.TabLayoutMetricsListener;
+import com.github.tablayout.listener.TabFragmentProvider;
+import com.github.tablayout.listener.TabItemCallback;
+import com.github.tablayout.utils.AsyncTabInflater;
 import com.github.tablayout.utils.DimensionUtils;
 import com.github.tablayout.utils.FragmentChangeManager;
+import com.github.tablayout.utils.IndicatorPoint;
+import com.github.tablayout.utils.TabDiff;
+import com.github.tablayout.utils.TabEdgeIndex;
+import com.github.tablayout.utils.TabMetricsTracker;
+import com.github.tablayout.utils.TabOffsets;
+import com.github.tablayout.utils.TabTextPrecomputer;
 import com.github.tablayout.utils.UnreadMsgUtils;
+import com.github.tablayout.widget.DecorationCache;
+import com.github.tablayout.widget.IndicatorView;
 import com.github.tablayout.widget.MsgView;
+import com.github.tablayout.widget.RecycledTabPool;
+import com.github.tablayout.widget.TabCanvasRenderer;
+import com.github.tablayout.widget.TabIcon;
+import com.github.tablayout.widget.TabIconLoader;
+import com.github.tablayout.widget.TabViewHolder;
 
 import java.util.ArrayList;
+import java.util.concurrent.Executor;
 
 /**
  * 没有继承HorizontalScrollView不能滑动, 对于ViewPager无依赖
@@ -45,6 +73,10 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
     private final Context mContext;
     private final ArrayList<ITab> mTabEntities = new ArrayList<>();
     private final LinearLayout mTabsContainer;
+    /**
+     * tab边界索引,每次布局后重建
+     */
+    private final TabEdgeIndex mTabEdges;
     private int mCurrentTab;
     private int mLastTab;
     private int mTabCount;
@@ -93,6 +125,10 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
     private static final int TEXT_BOLD_NONE = 0;
     private static final int TEXT_BOLD_WHEN_SELECT = 1;
     private static final int TEXT_BOLD_BOTH = 2;
+    /**
+     * 未设置图标大小时异步图标的解码尺寸
+     */
+    private static final int DEFAULT_ICON_SIZE_DP = 24;
     private float mTextSize;
     private float mSelectedTextSize;
     private int mTextSelectColor;
@@ -112,8 +148,58 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
     /* -- anim -- */
     private final ValueAnimator mValueAnimator;
     private final OvershootInterpolator mInterpolator = new OvershootInterpolator(1.5f);
+    /**
+     * 指示器覆盖层,为null时指示器在onDraw中绘制
+     */
+    private IndicatorView mIndicatorView;
 
     private FragmentChangeManager mFragmentChangeManager;
+    private boolean mFragmentCommitNow;
+    private boolean mFragmentAllowStateLoss;
+    private boolean mFragmentLazy;
+    private boolean mFragmentPrefetch;
+
+    /**
+     * 当前以选中样式显示的tab,切换时只需更新它和新选中的tab
+     */
+    private int mStyledTab = -1;
+
+    /* -- canvas rendering -- */
+    private TabCanvasRenderer mTabRenderer;
+    private final TabCanvasRenderer.Callback mRendererCallback = new TabCanvasRenderer.Callback() {
+        @Override
+        public int getSelectedTab() {
+            return mCurrentTab;
+        }
+
+        @Override
+        public void onTabClick(int position) {
+            performTabClick(position);
+        }
+    };
+
+    /* -- async inflate -- */
+    private boolean mAsyncInflate;
+    private AsyncTabInflater mTabInflater;
+
+    /* -- shared tab pool -- */
+    private RecycledTabPool mTabPool;
+    private TabIconLoader mIconLoader;
+    /**
+     * 当前tab使用的布局
+     */
+    private int mTabLayoutId;
+    /**
+     * 离开窗口时tab已归还到缓存池,重新进入窗口时再添加
+     */
+    private boolean mTabsRecycled;
+
+    /* -- precomputed titles -- */
+    private Executor mTextPrecomputeExecutor;
+    private TabTextPrecomputer mTextPrecomputer;
+
+    /* -- metrics -- */
+    private final TabMetricsTracker mMetrics = new TabMetricsTracker(this);
 
     public CommonTabLayout(Context context) {
         this(context, null, 0);
@@ -132,9 +218,13 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
 
         this.mContext = context;
         mTabsContainer = new LinearLayout(context);
+        mTabEdges = new TabEdgeIndex(mTabsContainer);
         addView(mTabsContainer);
 
         obtainAttributes(context, attrs);
+        if (mIndicatorView != null) {
+            addView(mIndicatorView, 0, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+        }
 
         //get layout_height
         String height = attrs.getAttributeValue("http://schemas.android.com/apk/res/android", "layout_height");
@@ -149,8 +239,17 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
             a.recycle();
         }
 
-        mValueAnimator = ValueAnimator.ofObject(new PointEvaluator(), mLastP, mCurrentP);
+        mValueAnimator = ValueAnimator.ofFloat(0f, 1f);
         mValueAnimator.addUpdateListener(this);
+        mValueAnimator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                if (useIndicatorOverlay()) {
+                    mIndicatorView.redraw();
+                }
+                mMetrics.stopFrameMonitor();
+            }
+        });
     }
 
     private void obtainAttributes(Context context, AttributeSet attrs) {
@@ -170,6 +269,9 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
         mIndicatorBounceEnable = ta.getBoolean(R.styleable.CommonTabLayout_tl_indicator_bounce_enable, true);
         mIndicatorAnimDuration = ta.getInt(R.styleable.CommonTabLayout_tl_indicator_anim_duration, -1);
         mIndicatorGravity = ta.getInt(R.styleable.CommonTabLayout_tl_indicator_gravity, Gravity.BOTTOM);
+        if (ta.getBoolean(R.styleable.CommonTabLayout_tl_indicator_overlay, false)) {
+            mIndicatorView = new IndicatorView(context, this::drawIndicatorOverlay);
+        }
 
         mUnderlineColor = ta.getColor(R.styleable.CommonTabLayout_tl_underline_color, Color.parseColor("#ffffff"));
         mUnderlineHeight = ta.getDimension(R.styleable.CommonTabLayout_tl_underline_height, DimensionUtils.dp2px(context,0));
@@ -196,6 +298,11 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
         mTabWidth = ta.getDimension(R.styleable.CommonTabLayout_tl_tab_width, DimensionUtils.dp2px(context,-1));
         mTabPadding = ta.getDimension(R.styleable.CommonTabLayout_tl_tab_padding, mTabSpaceEqual || mTabWidth > 0 ? DimensionUtils.dp2px(context,0) : DimensionUtils.dp2px(context,10));
 
+        if (ta.getBoolean(R.styleable.CommonTabLayout_tl_canvas_rendering, false)) {
+            mTabRenderer = new TabCanvasRenderer(this, mRendererCallback);
+        }
+        mAsyncInflate = ta.getBoolean(R.styleable.CommonTabLayout_tl_async_inflate, false);
+
         ta.recycle();
     }
 
@@ -215,6 +322,186 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
         notifyDataSetChanged();
     }
 
+    /**
+     * 设置tab数据,标题的排版在executor中完成
+     *
+     * @param tabEntities
+     * @param executor
+     * @see #setTextPrecomputeExecutor(Executor)
+     */
+    public void setTabData(ArrayList<ITab> tabEntities, Executor executor) {
+        this.mTextPrecomputeExecutor = executor;
+        setTabData(tabEntities);
+    }
+
+    /**
+     * 标题相同视为同一个tab,标题和图标都相同视为内容相同
+     */
+    private static final TabItemCallback<ITab> DEFAULT_TAB_CALLBACK = new TabItemCallback<ITab>() {
+        @Override
+        public boolean areItemsTheSame(ITab oldItem, ITab newItem) {
+            return TextUtils.equals(oldItem.getTabTitle(), newItem.getTabTitle());
+        }
+
+        @Override
+        public boolean areContentsTheSame(ITab oldItem, ITab newItem) {
+            return TextUtils.equals(oldItem.getTabTitle(), newItem.getTabTitle())
+                    && oldItem.getTabSelectedIcon() == newItem.getTabSelectedIcon()
+                    && oldItem.getTabUnselectedIcon() == newItem.getTabUnselectedIcon();
+        }
+    };
+
+    /**
+     * 增量更新tab数据,以标题区分tab
+     *
+     * @see #updateTabData(ArrayList, TabItemCallback)
+     */
+    public void updateTabData(ArrayList<ITab> tabEntities) {
+        updateTabData(tabEntities, DEFAULT_TAB_CALLBACK);
+    }
+
+    /**
+     * 增量更新tab数据,与当前数据对比后只添加、移除、移动或重新设置有变化的tab,
+     * 未变化的tab及其未读消息保持不变。当前选中的tab仍存在时保持选中,否则回调onTabSelect。
+     * 关联了fragments时不支持
+     *
+     * @param tabEntities
+     * @param callback    判断新旧数据是否为同一个tab
+     */
+    public void updateTabData(ArrayList<ITab> tabEntities, TabItemCallback<ITab> callback) {
+        if (tabEntities == null || tabEntities.size() == 0) {
+            throw new IllegalStateException("TabEntities can not be NULL or EMPTY !");
+        }
+
+        ArrayList<ITab> oldTabs = new ArrayList<>(mTabEntities);
+        applyTabChanges(oldTabs, tabEntities, TabDiff.match(oldTabs, tabEntities, callback), callback);
+    }
+
+    /**
+     * 在index位置插入tab,只添加新的tab,其余tab及未读消息保持不变。关联了fragments时不支持
+     */
+    public void insertTab(int index, ITab tab) {
+        if (index < 0 || index > mTabEntities.size()) {
+            throw new IllegalStateException("Tab index " + index + " out of range [0, " + mTabEntities.size() + "] !");
+        }
+        ArrayList<ITab> oldTabs = new ArrayList<>(mTabEntities);
+        ArrayList<ITab> tabs = new ArrayList<>(mTabEntities);
+        tabs.add(index, tab);
+        applyTabChanges(oldTabs, tabs, TabDiff.insert(oldTabs.size(), index), null);
+    }
+
+    /**
+     * 移除index位置的tab,不能移除最后一个tab。移除当前选中的tab时选中其后一个tab并回调onTabSelect。
+     * 关联了fragments时不支持
+     */
+    public void removeTab(int index) {
+        if (index < 0 || index >= mTabEntities.size()) {
+            throw new IllegalStateException("Tab index " + index + " out of range [0, " + mTabEntities.size() + ") !");
+        }
+        if (mTabEntities.size() == 1) {
+            throw new IllegalStateException("TabEntities can not be EMPTY !");
+        }
+        ArrayList<ITab> oldTabs = new ArrayList<>(mTabEntities);
+        ArrayList<ITab> tabs = new ArrayList<>(mTabEntities);
+        tabs.remove(index);
+        applyTabChanges(oldTabs, tabs, TabDiff.remove(oldTabs.size(), index), null);
+    }
+
+    /**
+     * 将from位置的tab移动到to位置,选中状态跟随tab移动。关联了fragments时不支持
+     */
+    public void moveTab(int from, int to) {
+        int size = mTabEntities.size();
+        if (from < 0 || from >= size || to < 0 || to >= size) {
+            throw new IllegalStateException("Tab index out of range [0, " + size + ") !");
+        }
+        if (from == to) {
+            return;
+        }
+        ArrayList<ITab> oldTabs = new ArrayList<>(mTabEntities);
+        ArrayList<ITab> tabs = new ArrayList<>(mTabEntities);
+        tabs.add(to, tabs.remove(from));
+        applyTabChanges(oldTabs, tabs, TabDiff.move(size, from, to), null);
+    }
+
+    /**
+     * 按新旧位置的对应关系更新tab,只处理有变化的tab并修正位置、选中状态和未读消息。
+     * FragmentChangeManager的fragments与tab位置绑定,关联了fragments时只能通过setTabData全量更新
+     *
+     * @param oldToNew 下标为旧位置,值为新位置
+     * @param callback 为null时不重新设置保留下来的tab的内容
+     */
+    private void applyTabChanges(ArrayList<ITab> oldTabs, ArrayList<ITab> tabEntities, int[] oldToNew, TabItemCallback<ITab> callback) {
+        if (mFragmentChangeManager != null) {
+            throw new IllegalStateException("Tabs bound to fragments can not be changed incrementally, use setTabData instead !");
+        }
+        int count = tabEntities.size();
+        this.mTabEntities.clear();
+        this.mTabEntities.addAll(tabEntities);
+        if (mValueAnimator.isRunning()) {
+            mValueAnimator.cancel();
+        }
+        boolean selectionRemoved = mCurrentTab >= oldToNew.length || oldToNew[mCurrentTab] == TabDiff.NO_POSITION;
+        mCurrentTab = TabDiff.remapPosition(mCurrentTab, oldToNew, count);
+        mLastTab = mCurrentTab;
+        TabDiff.remap(mMsgNums, oldToNew);
+        TabDiff.remap(mPendingMsgs, oldToNew);
+        TabDiff.remap(mInitSetMap, oldToNew);
+
+        if (mTabRenderer != null || isTabsDeferred() || mTabsContainer.getChildCount() != oldTabs.size()) {
+            // 无法复用tab时全量刷新,再恢复未读消息
+            SparseIntArray msgNums = mMsgNums.clone();
+            notifyDataSetChanged();
+            for (int i = 0; i < msgNums.size(); i++) {
+                showMsg(msgNums.keyAt(i), msgNums.valueAt(i));
+            }
+            if (selectionRemoved && mListener != null) {
+                mListener.onTabSelect(mCurrentTab);
+            }
+            return;
+        }
+
+        View[] tabViews = new View[count];
+        for (int i = oldTabs.size() - 1; i >= 0; i--) {
+            View tabView = mTabsContainer.getChildAt(i);
+            int newPos = oldToNew[i];
+            if (newPos == TabDiff.NO_POSITION) {
+                cancelTabIcons(TabViewHolder.get(tabView));
+                if (mTabPool != null) {
+                    mTabPool.put(mTabLayoutId, tabView);
+                } else {
+                    mTabsContainer.removeViewAt(i);
+                }
+                continue;
+            }
+            tabViews[newPos] = tabView;
+            TabViewHolder holder = TabViewHolder.get(tabView);
+            holder.position = newPos;
+            if (callback != null && !callback.areContentsTheSame(oldTabs.get(i), tabEntities.get(newPos))) {
+                holder.titleView.setText(tabEntities.get(newPos).getTabTitle());
+                bindTabIcon(holder, tabEntities.get(newPos));
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            View tabView = tabViews[i];
+            if (tabView == null) {
+                addTab(i, obtainTabView(mTabLayoutId));
+            } else if (mTabsContainer.getChildAt(i) != tabView) {
+                mTabsContainer.removeView(tabView);
+                mTabsContainer.addView(tabView, i);
+            }
+        }
+        this.mTabCount = count;
+        updateTabStyles();
+        mIsFirstDraw = true;
+        invalidateIndicator();
+        if (selectionRemoved && mListener != null) {
+            // 选中的tab被移除,按切换到新的tab通知
+            mListener.onTabSelect(mCurrentTab);
+        }
+    }
+
     /**
      * 关联数据支持同时切换fragments
      *
@@ -224,7 +511,22 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
      * @param fragments
      */
     public void setTabData(ArrayList<ITab> tabEntities, FragmentActivity fa, int containerViewId, ArrayList<Fragment> fragments) {
-        mFragmentChangeManager = new FragmentChangeManager(fa.getSupportFragmentManager(), containerViewId, fragments);
+        mFragmentChangeManager = new FragmentChangeManager(fa.getSupportFragmentManager(), containerViewId, fragments,
+                mFragmentCommitNow, mFragmentAllowStateLoss, mFragmentLazy, mFragmentPrefetch);
+        setTabData(tabEntities);
+    }
+
+    /**
+     * 关联数据支持同时切换fragments,fragment在首次选中时才通过provider创建并添加
+     *
+     * @param tabEntities
+     * @param fa
+     * @param containerViewId
+     * @param provider
+     */
+    public void setTabData(ArrayList<ITab> tabEntities, FragmentActivity fa, int containerViewId, TabFragmentProvider provider) {
+        mFragmentChangeManager = new FragmentChangeManager(fa.getSupportFragmentManager(), containerViewId, tabEntities.size(),
+                provider, mFragmentCommitNow, mFragmentAllowStateLoss, mFragmentPrefetch);
         setTabData(tabEntities);
     }
 
@@ -232,25 +534,188 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
      * 更新数据
      */
     public void notifyDataSetChanged() {
+        long start = mMetrics.beginSection(TabMetricsTracker.SECTION_INFLATE);
+        createTabs();
+        mMetrics.endInflate(start, mTabCount);
+    }
+
+    private void createTabs() {
+        if (mTabInflater != null) {
+            mTabInflater.cancel();
+        }
+        if (mTextPrecomputer != null) {
+            mTextPrecomputer.cancel();
+        }
+        recycleTabs();
         mTabsContainer.removeAllViews();
+        mMsgNums.clear();
         this.mTabCount = mTabEntities.size();
-        View tabView;
-        for (int i = 0; i < mTabCount; i++) {
-            if (mIconGravity == Gravity.LEFT) {
-                tabView = View.inflate(mContext, R.layout.layout_tab_left, null);
-            } else if (mIconGravity == Gravity.RIGHT) {
-                tabView = View.inflate(mContext, R.layout.layout_tab_right, null);
-            } else if (mIconGravity == Gravity.BOTTOM) {
-                tabView = View.inflate(mContext, R.layout.layout_tab_bottom, null);
+        if (mTabRenderer != null) {
+            CharSequence[] titles = new CharSequence[mTabCount];
+            Drawable[] icons = new Drawable[mTabCount];
+            Drawable[] selectedIcons = new Drawable[mTabCount];
+            for (int i = 0; i < mTabCount; i++) {
+                ITab tabEntity = mTabEntities.get(i);
+                titles[i] = tabEntity.getTabTitle();
+                icons[i] = getIconDrawable(tabEntity.getTabUnselectedIcon());
+                selectedIcons[i] = getIconDrawable(tabEntity.getTabSelectedIcon());
+            }
+            if (!mIconVisible) {
+                mTabRenderer.setDefaultMsgMargin(2, 2);
             } else {
-                tabView = View.inflate(mContext, R.layout.layout_tab_top, null);
+                mTabRenderer.setDefaultMsgMargin(0, mIconGravity == Gravity.LEFT || mIconGravity == Gravity.RIGHT ? 4 : 0);
             }
+            mTabRenderer.setTabs(titles, icons, selectedIcons);
+            updateTabStyles();
+            return;
+        }
 
-            tabView.setTag(i);
-            addTab(i, tabView);
+        if (mAsyncInflate) {
+            // tab创建完成前按没有tab处理,只显示背景
+            this.mTabCount = 0;
+            if (mTabInflater == null) {
+                mTabInflater = new AsyncTabInflater(mContext);
+            }
+            mTabLayoutId = getTabLayoutId();
+            mTabInflater.inflate(mTabLayoutId, mTabEntities.size(), mTabPool, this::attachTabs);
+            return;
+        }
+
+        mTabLayoutId = getTabLayoutId();
+        for (int i = 0; i < mTabCount; i++) {
+            addTab(i, obtainTabView(mTabLayoutId));
         }
 
         updateTabStyles();
+        precomputeTitles();
+    }
+
+    /**
+     * 在线程池中计算所有标题的文字布局,完成前tab隐藏,首帧不在主线程排版
+     */
+    private void precomputeTitles() {
+        if (mTextPrecomputeExecutor == null || mTabCount == 0) {
+            return;
+        }
+        if (mTextPrecomputer == null) {
+            mTextPrecomputer = new TabTextPrecomputer();
+        }
+        TextView[] titleViews = new TextView[mTabCount];
+        CharSequence[] titles = new CharSequence[mTabCount];
+        for (int i = 0; i < mTabCount; i++) {
+            titleViews[i] = getTabHolder(i).titleView;
+            titles[i] = titleViews[i].getText();
+        }
+        mTextPrecomputer.precompute(mTabsContainer, titleViews, titles, mTextPrecomputeExecutor, this::onTitlesPrecomputed);
+    }
+
+    private void onTitlesPrecomputed() {
+        // 指示器按显示后的布局重新计算
+        mIsFirstDraw = true;
+        invalidateIndicator();
+    }
+
+    /**
+     * 标题的文字布局是否还在计算,此时tab隐藏,不绘制指示器和分割线
+     */
+    private boolean isTitlesPending() {
+        return mTextPrecomputer != null && mTextPrecomputer.isPending();
+    }
+
+    private int getTabLayoutId() {
+        if (mIconGravity == Gravity.LEFT) {
+            return R.layout.layout_tab_left;
+        } else if (mIconGravity == Gravity.RIGHT) {
+            return R.layout.layout_tab_right;
+        } else if (mIconGravity == Gravity.BOTTOM) {
+            return R.layout.layout_tab_bottom;
+        } else {
+            return R.layout.layout_tab_top;
+        }
+    }
+
+    private View obtainTabView(int layoutId) {
+        View tabView = mTabPool == null ? null : mTabPool.obtain(layoutId, mContext);
+        return tabView != null ? tabView : View.inflate(mContext, layoutId, null);
+    }
+
+    /**
+     * 将当前的tab归还到缓存池,并取消未完成的图标加载
+     */
+    private void recycleTabs() {
+        mTabsRecycled = false;
+        if (mTabRenderer != null) {
+            return;
+        }
+        for (int i = mTabsContainer.getChildCount() - 1; i >= 0; i--) {
+            View tabView = mTabsContainer.getChildAt(i);
+            cancelTabIcons(TabViewHolder.get(tabView));
+            if (mTabPool != null) {
+                mTabPool.put(mTabLayoutId, tabView);
+            }
+        }
+    }
+
+    /**
+     * 异步创建或从缓存池重新获取的tab一次性添加,并补上等待期间设置的未读消息
+     */
+    private void attachTabs(View[] tabViews) {
+        this.mTabCount = tabViews.length;
+        for (int i = 0; i < mTabCount; i++) {
+            addTab(i, tabViews[i]);
+        }
+        updateTabStyles();
+        precomputeTitles();
+        // 等待期间选中的tab在这里生效,指示器在下一次绘制时按新的布局计算
+        if (mValueAnimator.isRunning()) {
+            mValueAnimator.cancel();
+        }
+        mLastTab = mCurrentTab;
+        mIsFirstDraw = true;
+        invalidateIndicator();
+        mInitSetMap.clear();
+
+        SparseIntArray msgNums = mMsgNums.clone();
+        for (int i = 0; i < msgNums.size(); i++) {
+            if (msgNums.keyAt(i) < mTabCount) {
+                showMsg(msgNums.keyAt(i), msgNums.valueAt(i));
+            }
+        }
+        if (mPendingMsgs.size() > 0) {
+            applyPendingMsgs();
+        }
+    }
+
+    /**
+     * tab是否尚未添加(异步创建中或已归还到缓存池),此时未读消息只记录,添加后再显示
+     */
+    private boolean isTabsDeferred() {
+        return mTabsRecycled || (mTabInflater != null && mTabInflater.isPending());
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mTabsRecycled) {
+            mTabsRecycled = false;
+            View[] tabViews = new View[mTabEntities.size()];
+            for (int i = 0; i < tabViews.length; i++) {
+                tabViews[i] = obtainTabView(mTabLayoutId);
+            }
+            attachTabs(tabViews);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mDecorationCache.release();
+        mMetrics.stopFrameMonitor();
+        mMetrics.cancelTabSwitch();
+        if (mTabPool != null && mTabRenderer == null && !isTabsDeferred() && mTabCount > 0) {
+            recycleTabs();
+            mTabsRecycled = true;
+        }
     }
 
     /**
@@ -260,24 +725,11 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
      * @param tabView
      */
     private void addTab(final int position, View tabView) {
-        TextView tabTitleView = (TextView) tabView.findViewById(R.id.tv_tab_title);
-        tabTitleView.setText(mTabEntities.get(position).getTabTitle());
-        ImageView tabIconView = (ImageView) tabView.findViewById(R.id.iv_tab_icon);
-        tabIconView.setImageResource(mTabEntities.get(position).getTabUnselectedIcon());
-
-        tabView.setOnClickListener(v -> {
-            int childPosition = (Integer) v.getTag();
-            if (mCurrentTab != childPosition) {
-                setCurrentTab(childPosition);
-                if (mListener != null) {
-                    mListener.onTabSelect(childPosition);
-                }
-            } else {
-                if (mListener != null) {
-                    mListener.onTabReselect(childPosition);
-                }
-            }
-        });
+        TabViewHolder holder = TabViewHolder.create(tabView, position);
+        holder.titleView.setText(mTabEntities.get(position).getTabTitle());
+        bindTabIcon(holder, mTabEntities.get(position));
+
+        tabView.setOnClickListener(v -> performTabClick(TabViewHolder.get(v).position));
 
         // 每一个Tab的布局参数
         LinearLayout.LayoutParams itemTabLp = mTabSpaceEqual ?
@@ -289,19 +741,151 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
         mTabsContainer.addView(tabView, position, itemTabLp);
     }
 
+    private TabViewHolder getTabHolder(int position) {
+        return TabViewHolder.get(mTabsContainer.getChildAt(position));
+    }
+
+    private void performTabClick(int position) {
+        if (mCurrentTab != position) {
+            setCurrentTab(position);
+            if (mListener != null) {
+                mListener.onTabSelect(position);
+            }
+        } else {
+            if (mListener != null) {
+                mListener.onTabReselect(position);
+            }
+        }
+    }
+
+    private Drawable getIconDrawable(int iconRes) {
+        return iconRes == 0 ? null : ContextCompat.getDrawable(mContext, iconRes);
+    }
+
+    /**
+     * 为tab设置同时包含选中和未选中状态的图标,图标没有变化时不重新创建。
+     * IIconTab的图标异步加载,加载完成前显示资源图标
+     */
+    private void bindTabIcon(final TabViewHolder holder, ITab tabEntity) {
+        int selectedIcon = tabEntity.getTabSelectedIcon();
+        int unselectedIcon = tabEntity.getTabUnselectedIcon();
+        TabIcon selectedSource = null;
+        TabIcon unselectedSource = null;
+        if (tabEntity instanceof IIconTab) {
+            selectedSource = ((IIconTab) tabEntity).getTabSelectedIconSource();
+            unselectedSource = ((IIconTab) tabEntity).getTabUnselectedIconSource();
+        }
+        if (holder.selectedIconRes == selectedIcon && holder.unselectedIconRes == unselectedIcon
+                && equals(holder.selectedIcon, selectedSource) && equals(holder.unselectedIcon, unselectedSource)) {
+            return;
+        }
+        cancelTabIcons(holder);
+        holder.selectedIconRes = selectedIcon;
+        holder.unselectedIconRes = unselectedIcon;
+        holder.selectedIcon = selectedSource;
+        holder.unselectedIcon = unselectedSource;
+        final Drawable[] icons = {getIconDrawable(selectedIcon), getIconDrawable(unselectedIcon)};
+        if (selectedSource != null) {
+            loadTabIcon(holder, selectedSource, unselectedSource, icons, 0);
+        }
+        if (unselectedSource != null) {
+            loadTabIcon(holder, selectedSource, unselectedSource, icons, 1);
+        }
+        setTabIcon(holder, icons[0], icons[1]);
+    }
+
+    /**
+     * 加载icons[index]对应的图标,已经可用时直接替换,否则在加载完成后tab仍显示相同图标时更新
+     */
+    private void loadTabIcon(final TabViewHolder holder, final TabIcon selectedSource, final TabIcon unselectedSource,
+                             final Drawable[] icons, final int index) {
+        int iconSize = DimensionUtils.dp2px(mContext, DEFAULT_ICON_SIZE_DP);
+        int width = mIconWidth > 0 ? (int) mIconWidth : mIconHeight > 0 ? (int) mIconHeight : iconSize;
+        int height = mIconHeight > 0 ? (int) mIconHeight : width;
+        TabIcon source = index == 0 ? selectedSource : unselectedSource;
+        TabIconLoader.Callback callback = loaded -> {
+            holder.iconCallbacks[index] = null;
+            // tab被回收后会创建新的holder,旧holder的回调不能再修改图标
+            if (TabViewHolder.get(holder.itemView) != holder
+                    || holder.selectedIcon != selectedSource || holder.unselectedIcon != unselectedSource) {
+                return;
+            }
+            icons[index] = loaded;
+            setTabIcon(holder, icons[0], icons[1]);
+        };
+        Drawable icon = getIconLoader().load(source, width, height, callback);
+        if (icon != null) {
+            icons[index] = icon;
+        } else {
+            holder.iconCallbacks[index] = callback;
+        }
+    }
+
+    /**
+     * 取消tab未完成的图标加载
+     */
+    private void cancelTabIcons(TabViewHolder holder) {
+        if (holder == null) {
+            return;
+        }
+        for (int i = 0; i < holder.iconCallbacks.length; i++) {
+            if (holder.iconCallbacks[i] != null) {
+                getIconLoader().cancel(holder.iconCallbacks[i]);
+                holder.iconCallbacks[i] = null;
+            }
+        }
+    }
+
+    private void setTabIcon(TabViewHolder holder, Drawable selected, Drawable unselected) {
+        if (selected == null && unselected == null) {
+            holder.iconView.setImageDrawable(null);
+            return;
+        }
+        StateListDrawable icon = new StateListDrawable();
+        if (selected != null) {
+            icon.addState(new int[]{android.R.attr.state_selected}, selected);
+        }
+        if (unselected != null) {
+            icon.addState(StateSet.WILD_CARD, unselected);
+        }
+        holder.iconView.setImageDrawable(icon);
+    }
+
+    private static boolean equals(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
     /**
      * 更新Tab样式
      */
     private void updateTabStyles() {
+        mStyledTab = mCurrentTab;
+        if (mTabRenderer != null) {
+            mTabRenderer.setTextStyle(mTextSize, mSelectedTextSize, mTextSelectColor, mTextUnselectColor, mTextBold, mTextAllCaps);
+            mTabRenderer.setIconStyle(mIconVisible, mIconGravity, mIconWidth, mIconHeight, mIconMargin);
+            layoutCanvasTabs();
+            requestLayout();
+            invalidate();
+            return;
+        }
+        if (isTabsDeferred()) {
+            // tab添加时会重新调用
+            return;
+        }
+
         for (int i = 0; i < mTabCount; i++) {
-            View tabView = mTabsContainer.getChildAt(i);
-            tabView.setPadding((int) mTabPadding, 0, (int) mTabPadding, 0);
-            TextView tabTitleView = (TextView) tabView.findViewById(R.id.tv_tab_title);
+            TabViewHolder holder = getTabHolder(i);
+            holder.itemView.setPadding((int) mTabPadding, 0, (int) mTabPadding, 0);
+            TextView tabTitleView = holder.titleView;
             tabTitleView.setTextColor(i == mCurrentTab ? mTextSelectColor : mTextUnselectColor);
             tabTitleView.setTextSize(TypedValue.COMPLEX_UNIT_PX, i == mCurrentTab ? mSelectedTextSize : mTextSize);
 //            tabTitleView.setPadding((int) mTabPadding, 0, (int) mTabPadding, 0);
             if (mTextAllCaps) {
-                tabTitleView.setText(tabTitleView.getText().toString().toUpperCase());
+                String upperText = tabTitleView.getText().toString().toUpperCase();
+                // 已经是大写时不重新设置,避免丢弃预先计算的文字布局
+                if (!TextUtils.equals(upperText, tabTitleView.getText())) {
+                    tabTitleView.setText(upperText);
+                }
             }
 
             if (mTextBold == TEXT_BOLD_BOTH) {
@@ -312,11 +896,11 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
                 tabTitleView.getPaint().setFakeBoldText(i == mCurrentTab);
             }
 
-            ImageView tabIconView = (ImageView) tabView.findViewById(R.id.iv_tab_icon);
+            ImageView tabIconView = holder.iconView;
             if (mIconVisible) {
                 tabIconView.setVisibility(View.VISIBLE);
-                ITab tabEntity = mTabEntities.get(i);
-                tabIconView.setImageResource(i == mCurrentTab ? tabEntity.getTabSelectedIcon() : tabEntity.getTabUnselectedIcon());
+                bindTabIcon(holder, mTabEntities.get(i));
+                tabIconView.setSelected(i == mCurrentTab);
                 LinearLayout.LayoutParams lp = new LinearLayout.LayoutParams(
                         mIconWidth <= 0 ? LinearLayout.LayoutParams.WRAP_CONTENT : (int) mIconWidth,
                         mIconHeight <= 0 ? LinearLayout.LayoutParams.WRAP_CONTENT : (int) mIconHeight);
@@ -338,34 +922,117 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
     }
 
     private void updateTabSelection(int position) {
-        for (int i = 0; i < mTabCount; ++i) {
-            View tabView = mTabsContainer.getChildAt(i);
-            final boolean isSelect = i == position;
-            TextView tabTitleView = (TextView) tabView.findViewById(R.id.tv_tab_title);
-            tabTitleView.setTextColor(isSelect ? mTextSelectColor : mTextUnselectColor);
+        int lastTab = mStyledTab;
+        if (lastTab == position) {
+            return;
+        }
+        mStyledTab = position;
+
+        if (mTabRenderer != null) {
+            mTabRenderer.notifySelectionChanged(lastTab, position);
+            invalidate();
+            return;
+        }
+        if (isTabsDeferred()) {
+            // tab添加时由updateTabStyles设置选中样式
+            return;
+        }
+
+        if (lastTab >= 0 && lastTab < mTabCount) {
+            updateTabSelection(lastTab, false);
+        }
+        if (position < mTabCount) {
+            updateTabSelection(position, true);
+        }
+    }
+
+    /**
+     * 更新单个tab的选中样式,选中与未选中字号相同时不修改字号以避免重新布局
+     */
+    private void updateTabSelection(int position, boolean isSelect) {
+        TabViewHolder holder = getTabHolder(position);
+        TextView tabTitleView = holder.titleView;
+        tabTitleView.setTextColor(isSelect ? mTextSelectColor : mTextUnselectColor);
+        if (mSelectedTextSize != mTextSize) {
             tabTitleView.setTextSize(TypedValue.COMPLEX_UNIT_PX, isSelect ? mSelectedTextSize : mTextSize);
-            ImageView tabIconView = (ImageView) tabView.findViewById(R.id.iv_tab_icon);
-            ITab tabEntity = mTabEntities.get(i);
-            tabIconView.setImageResource(isSelect ? tabEntity.getTabSelectedIcon() : tabEntity.getTabUnselectedIcon());
-            if (mTextBold == TEXT_BOLD_WHEN_SELECT) {
-                tabTitleView.getPaint().setFakeBoldText(isSelect);
+        }
+        // 图标已包含选中状态,只需切换selected
+        holder.iconView.setSelected(isSelect);
+        if (mTextBold == TEXT_BOLD_WHEN_SELECT) {
+            tabTitleView.getPaint().setFakeBoldText(isSelect);
+            tabTitleView.invalidate();
+        }
+    }
+
+    /**
+     * canvas绘制模式下根据当前尺寸计算tab宽度表
+     */
+    private void layoutCanvasTabs() {
+        mTabRenderer.layoutTabs(mTabsContainer.getWidth(), mTabSpaceEqual, mTabWidth, mTabPadding);
+        mTabRenderer.setBounds(mTabsContainer.getLeft(), mTabsContainer.getTop(), mTabsContainer.getBottom());
+        int minWidth = mTabSpaceEqual && mTabWidth <= 0 ? 0 : mTabRenderer.getOffsets().getTotalWidth();
+        if (mTabsContainer.getMinimumWidth() != minWidth) {
+            mTabsContainer.setMinimumWidth(minWidth);
+        }
+        int minHeight = mTabRenderer.getContentHeight();
+        if (mTabsContainer.getMinimumHeight() != minHeight) {
+            mTabsContainer.setMinimumHeight(minHeight);
+        }
+    }
+
+    /**
+     * @return tab宽度表,tab变化后还未重新布局时返回null
+     */
+    private TabOffsets getTabOffsets() {
+        return mTabRenderer != null ? mTabRenderer.getOffsets() : mTabEdges.getOffsets();
+    }
+
+    private int getTabLeft(int position) {
+        TabOffsets offsets = getTabOffsets();
+        if (offsets != null) {
+            return offsets.getLeft(position);
+        }
+        View tabView = mTabsContainer.getChildAt(position);
+        return tabView == null ? 0 : tabView.getLeft();
+    }
+
+    private int getTabRight(int position) {
+        TabOffsets offsets = getTabOffsets();
+        if (offsets != null) {
+            return offsets.getRight(position);
+        }
+        View tabView = mTabsContainer.getChildAt(position);
+        return tabView == null ? 0 : tabView.getRight();
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        if (mTabRenderer != null) {
+            layoutCanvasTabs();
+        } else {
+            mTabEdges.rebuild();
+        }
+        if (mIndicatorView != null) {
+            //覆盖层与TabLayout重合,指示器使用与onDraw相同的坐标
+            mIndicatorView.layout(0, 0, getWidth(), getHeight());
+            if (!mValueAnimator.isRunning()) {
+                mIndicatorView.redraw();
             }
         }
+        mDecorationCache.invalidate();
     }
 
     private void calcOffset() {
-        final View currentTabView = mTabsContainer.getChildAt(this.mCurrentTab);
-        mCurrentP.left = currentTabView.getLeft();
-        mCurrentP.right = currentTabView.getRight();
+        mCurrentP.left = getTabLeft(this.mCurrentTab);
+        mCurrentP.right = getTabRight(this.mCurrentTab);
 
-        final View lastTabView = mTabsContainer.getChildAt(this.mLastTab);
-        mLastP.left = lastTabView.getLeft();
-        mLastP.right = lastTabView.getRight();
+        mLastP.left = getTabLeft(this.mLastTab);
+        mLastP.right = getTabRight(this.mLastTab);
 
         if (mLastP.left == mCurrentP.left && mLastP.right == mCurrentP.right) {
-            invalidate();
+            invalidateIndicator();
         } else {
-            mValueAnimator.setObjectValues(mLastP, mCurrentP);
             if (mIndicatorBounceEnable) {
                 mValueAnimator.setInterpolator(mInterpolator);
             }
@@ -375,13 +1042,13 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
             }
             mValueAnimator.setDuration(mIndicatorAnimDuration);
             mValueAnimator.start();
+            mMetrics.startFrameMonitor();
         }
     }
 
     private void calcIndicatorRect() {
-        View currentTabView = mTabsContainer.getChildAt(this.mCurrentTab);
-        float left = currentTabView.getLeft();
-        float right = currentTabView.getRight();
+        float left = getTabLeft(this.mCurrentTab);
+        float right = getTabRight(this.mCurrentTab);
 
         mIndicatorRect.left = (int) left;
         mIndicatorRect.right = (int) right;
@@ -391,7 +1058,7 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
 
         } else {
             //indicatorWidth大于0时,圆角矩形以及三角形
-            float indicatorLeft = currentTabView.getLeft() + (currentTabView.getWidth() - mIndicatorWidth) / 2;
+            float indicatorLeft = left + (right - left - mIndicatorWidth) / 2;
 
             mIndicatorRect.left = (int) indicatorLeft;
             mIndicatorRect.right = (int) (mIndicatorRect.left + mIndicatorWidth);
@@ -400,8 +1067,9 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
 
     @Override
     public void onAnimationUpdate(ValueAnimator animation) {
-        View currentTabView = mTabsContainer.getChildAt(this.mCurrentTab);
-        IndicatorPoint p = (IndicatorPoint) animation.getAnimatedValue();
+        int currentTabWidth = getTabRight(this.mCurrentTab) - getTabLeft(this.mCurrentTab);
+        IndicatorPoint p = mAnimP;
+        p.evaluate(animation.getAnimatedFraction(), mLastP, mCurrentP);
         mIndicatorRect.left = (int) p.left;
         mIndicatorRect.right = (int) p.right;
 
@@ -410,24 +1078,29 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
 
         } else {
             //indicatorWidth大于0时,圆角矩形以及三角形
-            float indicatorLeft = p.left + (currentTabView.getWidth() - mIndicatorWidth) / 2;
+            float indicatorLeft = p.left + (currentTabWidth - mIndicatorWidth) / 2;
 
             mIndicatorRect.left = (int) indicatorLeft;
             mIndicatorRect.right = (int) (mIndicatorRect.left + mIndicatorWidth);
         }
-        invalidate();
+        if (useIndicatorOverlay()) {
+            int paddingLeft = getPaddingLeft();
+            // 只有没有圆角的矩形可以缩放
+            mIndicatorView.moveTo(paddingLeft + mIndicatorRect.left, paddingLeft + mIndicatorRect.right,
+                    mIndicatorStyle == STYLE_NORMAL && mIndicatorCornerRadius <= 0);
+        } else {
+            invalidate();
+        }
     }
 
     private boolean mIsFirstDraw = true;
 
-    @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-
-        if (isInEditMode() || mTabCount <= 0) {
-            return;
-        }
+    /**
+     * 分割线和底线只在布局或样式变化时重新录制
+     */
+    private final DecorationCache mDecorationCache = new DecorationCache(this::drawDecorations);
 
+    private void drawDecorations(Canvas canvas) {
         int height = getHeight();
         int paddingLeft = getPaddingLeft();
         // draw divider
@@ -435,8 +1108,8 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
             mDividerPaint.setStrokeWidth(mDividerWidth);
             mDividerPaint.setColor(mDividerColor);
             for (int i = 0; i < mTabCount - 1; i++) {
-                View tab = mTabsContainer.getChildAt(i);
-                canvas.drawLine(paddingLeft + tab.getRight(), mDividerPadding, paddingLeft + tab.getRight(), height - mDividerPadding, mDividerPaint);
+                int tabRight = getTabRight(i);
+                canvas.drawLine(paddingLeft + tabRight, mDividerPadding, paddingLeft + tabRight, height - mDividerPadding, mDividerPaint);
             }
         }
 
@@ -449,7 +1122,46 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
                 canvas.drawRect(paddingLeft, 0, mTabsContainer.getWidth() + paddingLeft, mUnderlineHeight, mRectPaint);
             }
         }
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        long start = mMetrics.beginSection(TabMetricsTracker.SECTION_DRAW);
+        super.draw(canvas);
+        mMetrics.endDraw(start);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
 
+        if (isInEditMode() || mTabCount <= 0 || isTabsDeferred() || isTitlesPending()) {
+            return;
+        }
+
+        mDecorationCache.draw(canvas, getWidth(), getHeight());
+
+        if (!useIndicatorOverlay()) {
+            drawIndicator(canvas);
+        }
+
+        if (mTabRenderer != null) {
+            mTabRenderer.draw(canvas);
+        }
+    }
+
+    private void drawIndicatorOverlay(Canvas canvas) {
+        if (isInEditMode() || mTabCount <= 0 || isTabsDeferred() || isTitlesPending() || !useIndicatorOverlay()) {
+            return;
+        }
+        drawIndicator(canvas);
+        int paddingLeft = getPaddingLeft();
+        mIndicatorView.setDrawnBounds(paddingLeft + mIndicatorRect.left, paddingLeft + mIndicatorRect.right);
+    }
+
+    private void drawIndicator(Canvas canvas) {
+        int height = getHeight();
+        int paddingLeft = getPaddingLeft();
         //draw indicator line
         if (mIndicatorAnimEnable) {
             if (mIsFirstDraw) {
@@ -515,24 +1227,70 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
         }
     }
 
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (mTabRenderer != null && mTabRenderer.onTouchEvent(event)) {
+            return true;
+        }
+        return super.onTouchEvent(event);
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        if (mTabRenderer != null && mTabRenderer.dispatchHoverEvent(event)) {
+            return true;
+        }
+        return super.dispatchHoverEvent(event);
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        if (mTabRenderer != null && mTabRenderer.dispatchKeyEvent(event)) {
+            return true;
+        }
+        return super.dispatchKeyEvent(event);
+    }
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        if (mTabRenderer != null) {
+            mTabRenderer.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        }
+    }
+
     /* -- setter and getter -- **/
     public void setCurrentTab(int currentTab) {
+        long switchStart = mMetrics.beginTabSwitch(this.mCurrentTab, currentTab);
         mLastTab = this.mCurrentTab;
         this.mCurrentTab = currentTab;
-        updateTabSelection(currentTab);
+        boolean deferred = isTabsDeferred();
+        if (deferred) {
+            // tab还未添加,添加时按mCurrentTab更新选中样式和指示器
+            mLastTab = currentTab;
+        } else {
+            updateTabSelection(currentTab);
+        }
         if (mFragmentChangeManager != null) {
+            long fragmentsStart = mMetrics.beginSection(TabMetricsTracker.SECTION_FRAGMENTS);
             mFragmentChangeManager.setFragments(currentTab);
+            mMetrics.endSection(fragmentsStart);
+        }
+        if (deferred) {
+            mMetrics.endSection(switchStart);
+            return;
         }
         if (mIndicatorAnimEnable) {
             calcOffset();
         } else {
-            invalidate();
+            invalidateIndicator();
         }
+        mMetrics.endSection(switchStart);
     }
 
     public void setIndicatorStyle(int indicatorStyle) {
         this.mIndicatorStyle = indicatorStyle;
-        invalidate();
+        invalidateIndicator();
     }
 
     public void setTabPadding(float tabPadding) {
@@ -552,27 +1310,27 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
 
     public void setIndicatorColor(int indicatorColor) {
         this.mIndicatorColor = indicatorColor;
-        invalidate();
+        invalidateIndicator();
     }
 
     public void setIndicatorHeight(float indicatorHeight) {
         this.mIndicatorHeight = DimensionUtils.dp2px(getContext(), indicatorHeight);
-        invalidate();
+        invalidateIndicator();
     }
 
     public void setIndicatorWidth(float indicatorWidth) {
         this.mIndicatorWidth = DimensionUtils.dp2px(getContext(), indicatorWidth);
-        invalidate();
+        invalidateIndicator();
     }
 
     public void setIndicatorCornerRadius(float indicatorCornerRadius) {
         this.mIndicatorCornerRadius = DimensionUtils.dp2px(getContext(), indicatorCornerRadius);
-        invalidate();
+        invalidateIndicator();
     }
 
     public void setIndicatorGravity(int indicatorGravity) {
         this.mIndicatorGravity = indicatorGravity;
-        invalidate();
+        invalidateIndicator();
     }
 
     public void setIndicatorMargin(float indicatorMarginLeft, float indicatorMarginTop,
@@ -581,13 +1339,39 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
         this.mIndicatorMarginTop = DimensionUtils.dp2px(getContext(), indicatorMarginTop);
         this.mIndicatorMarginRight = DimensionUtils.dp2px(getContext(), indicatorMarginRight);
         this.mIndicatorMarginBottom = DimensionUtils.dp2px(getContext(), indicatorMarginBottom);
-        invalidate();
+        invalidateIndicator();
     }
 
     public void setIndicatorAnimDuration(long indicatorAnimDuration) {
         this.mIndicatorAnimDuration = indicatorAnimDuration;
     }
 
+    /**
+     * 设置切换fragments时事务的提交方式,需要在关联fragments的setTabData之前调用才会对初始化生效
+     *
+     * @param commitNow      是否使用commitNow同步提交
+     * @param allowStateLoss 是否允许在onSaveInstanceState之后提交
+     */
+    public void setFragmentCommitOptions(boolean commitNow, boolean allowStateLoss) {
+        this.mFragmentCommitNow = commitNow;
+        this.mFragmentAllowStateLoss = allowStateLoss;
+        if (mFragmentChangeManager != null) {
+            mFragmentChangeManager.setCommitNow(commitNow);
+            mFragmentChangeManager.setAllowStateLoss(allowStateLoss);
+        }
+    }
+
+    /**
+     * 设置fragments的加载方式,需要在关联fragments的setTabData之前调用
+     *
+     * @param lazy               是否在首次选中时才添加fragment,通过TabFragmentProvider关联时总是懒加载
+     * @param prefetchNeighbours 懒加载时是否在主线程空闲时预先添加当前tab相邻的fragment
+     */
+    public void setFragmentLoadOptions(boolean lazy, boolean prefetchNeighbours) {
+        this.mFragmentLazy = lazy;
+        this.mFragmentPrefetch = prefetchNeighbours;
+    }
+
     public void setIndicatorAnimEnable(boolean indicatorAnimEnable) {
         this.mIndicatorAnimEnable = indicatorAnimEnable;
     }
@@ -598,31 +1382,37 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
 
     public void setUnderlineColor(int underlineColor) {
         this.mUnderlineColor = underlineColor;
+        mDecorationCache.invalidate();
         invalidate();
     }
 
     public void setUnderlineHeight(float underlineHeight) {
         this.mUnderlineHeight = DimensionUtils.dp2px(getContext(), underlineHeight);
+        mDecorationCache.invalidate();
         invalidate();
     }
 
     public void setUnderlineGravity(int underlineGravity) {
         this.mUnderlineGravity = underlineGravity;
+        mDecorationCache.invalidate();
         invalidate();
     }
 
     public void setDividerColor(int dividerColor) {
         this.mDividerColor = dividerColor;
+        mDecorationCache.invalidate();
         invalidate();
     }
 
     public void setDividerWidth(float dividerWidth) {
         this.mDividerWidth = DimensionUtils.dp2px(getContext(), dividerWidth);
+        mDecorationCache.invalidate();
         invalidate();
     }
 
     public void setDividerPadding(float dividerPadding) {
         this.mDividerPadding = DimensionUtils.dp2px(getContext(), dividerPadding);
+        mDecorationCache.invalidate();
         invalidate();
     }
 
@@ -681,6 +1471,127 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
         updateTabStyles();
     }
 
+    /**
+     * 设置canvas绘制模式,开启后不再为每个tab创建子View,标题、图标和未读消息直接绘制,
+     * 此时getTitleView、getIconView和getMsgView返回null
+     */
+    public void setCanvasRendering(boolean canvasRendering) {
+        if (canvasRendering == (mTabRenderer != null)) {
+            return;
+        }
+        if (canvasRendering) {
+            mTabRenderer = new TabCanvasRenderer(this, mRendererCallback);
+        } else {
+            mTabRenderer.release();
+            mTabRenderer = null;
+            mTabsContainer.setMinimumWidth(0);
+            mTabsContainer.setMinimumHeight(0);
+        }
+        if (!mTabEntities.isEmpty()) {
+            notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * 设置指示器覆盖层,开启后指示器单独绘制在tab下方的覆盖层中,切换动画只修改覆盖层的位移和缩放,
+     * 不再每帧重绘整个TabLayout。动画过程中圆角和三角形会随宽度一起拉伸,结束后按实际大小重新绘制。
+     * canvas绘制模式下无效
+     */
+    public void setIndicatorOverlay(boolean indicatorOverlay) {
+        if (indicatorOverlay == (mIndicatorView != null)) {
+            return;
+        }
+        if (mValueAnimator.isRunning()) {
+            mValueAnimator.end();
+        }
+        if (indicatorOverlay) {
+            mIndicatorView = new IndicatorView(mContext, this::drawIndicatorOverlay);
+            addView(mIndicatorView, 0, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+        } else {
+            removeView(mIndicatorView);
+            mIndicatorView = null;
+        }
+        invalidateIndicator();
+    }
+
+    private boolean useIndicatorOverlay() {
+        return mIndicatorView != null && mTabRenderer == null;
+    }
+
+    /**
+     * 指示器的位置或样式变化后重绘,覆盖层模式下动画过程中由动画更新
+     */
+    private void invalidateIndicator() {
+        if (useIndicatorOverlay() && !mValueAnimator.isRunning()) {
+            mIndicatorView.redraw();
+        }
+        invalidate();
+    }
+
+    /**
+     * 设置异步创建tab,开启后tab在后台线程创建,完成前只显示背景,完成后一次性添加。
+     * 在下一次setTabData或notifyDataSetChanged时生效,canvas绘制模式下无效
+     */
+    public void setAsyncInflate(boolean asyncInflate) {
+        this.mAsyncInflate = asyncInflate;
+    }
+
+    public boolean isAsyncInflate() {
+        return mAsyncInflate;
+    }
+
+    /**
+     * 设置性能数据回调,设置后统计tab切换、创建和绘制的耗时以及动画过程中的掉帧,
+     * 同时为各阶段添加Trace片段。为null时不做统计
+     */
+    public void setMetricsListener(TabLayoutMetricsListener listener) {
+        mMetrics.setListener(listener);
+    }
+
+    public TabLayoutMetricsListener getMetricsListener() {
+        return mMetrics.getListener();
+    }
+
+    /**
+     * 设置计算标题文字布局的线程池,设置后创建tab时标题的排版在该线程池中完成,完成前tab不显示,首帧不在主线程排版。
+     * 在下一次setTabData或notifyDataSetChanged时生效,canvas绘制模式下无效
+     *
+     * @param executor 为null时在主线程排版
+     */
+    public void setTextPrecomputeExecutor(Executor executor) {
+        this.mTextPrecomputeExecutor = executor;
+    }
+
+    /**
+     * 设置共享的tab缓存池,创建tab时优先从池中获取,离开窗口或刷新数据时归还。
+     * 离开窗口期间getTitleView、getIconView和getMsgView返回null
+     *
+     * @param pool 为null时不使用缓存池
+     */
+    public void setRecycledTabPool(RecycledTabPool pool) {
+        this.mTabPool = pool;
+    }
+
+    public RecycledTabPool getRecycledTabPool() {
+        return mTabPool;
+    }
+
+    /**
+     * 设置IIconTab图标的加载器,多个TabLayout可以共享同一个加载器的缓存
+     *
+     * @param loader 为null时使用TabIconLoader.getDefault
+     */
+    public void setIconLoader(TabIconLoader loader) {
+        this.mIconLoader = loader;
+    }
+
+    public TabIconLoader getIconLoader() {
+        if (mIconLoader == null) {
+            mIconLoader = TabIconLoader.getDefault(mContext);
+        }
+        return mIconLoader;
+    }
+
 
     public int getTabCount() {
         return mTabCount;
@@ -810,20 +1721,37 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
         return mIconVisible;
     }
 
+    public boolean isCanvasRendering() {
+        return mTabRenderer != null;
+    }
+
+    public boolean isIndicatorOverlay() {
+        return mIndicatorView != null;
+    }
 
+    /**
+     * @return canvas绘制模式或tab尚未添加时返回null
+     */
     public ImageView getIconView(int tab) {
-        View tabView = mTabsContainer.getChildAt(tab);
-        return (ImageView) tabView.findViewById(R.id.iv_tab_icon);
+        TabViewHolder holder = mTabRenderer != null ? null : getTabHolder(tab);
+        return holder == null ? null : holder.iconView;
     }
 
+    /**
+     * @return canvas绘制模式或tab尚未添加时返回null
+     */
     public TextView getTitleView(int tab) {
-        View tabView = mTabsContainer.getChildAt(tab);
-        return (TextView) tabView.findViewById(R.id.tv_tab_title);
+        TabViewHolder holder = mTabRenderer != null ? null : getTabHolder(tab);
+        return holder == null ? null : holder.titleView;
     }
 
     // show MsgTipView
     private final Paint mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
     private final SparseBooleanArray mInitSetMap = new SparseBooleanArray();
+    /**
+     * 当前显示的未读消息,key为tab位置
+     */
+    private final SparseIntArray mMsgNums = new SparseIntArray();
 
     /**
      * 显示未读消息
@@ -832,12 +1760,23 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
      * @param num      num小于等于0显示红点,num大于0显示数字
      */
     public void showMsg(int position, int num) {
+        if (isTabsDeferred()) {
+            mMsgNums.put(position, num);
+            return;
+        }
         if (position >= mTabCount) {
             position = mTabCount - 1;
         }
 
-        View tabView = mTabsContainer.getChildAt(position);
-        MsgView tipView = (MsgView) tabView.findViewById(R.id.rtv_msg_tip);
+        mMsgNums.put(position, num);
+        if (mTabRenderer != null) {
+            mTabRenderer.setMsg(position, num);
+            invalidate();
+            return;
+        }
+
+        TabViewHolder holder = getTabHolder(position);
+        MsgView tipView = holder.msgView;
         if (tipView != null) {
             UnreadMsgUtils.show(tipView, num);
 
@@ -862,7 +1801,7 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
      * @param position 显示tab位置
      */
     public void showDot(int position) {
-        if (position >= mTabCount) {
+        if (!isTabsDeferred() && position >= mTabCount) {
             position = mTabCount - 1;
         }
         showMsg(position, 0);
@@ -874,30 +1813,93 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
      * @param position
      */
     public void hideMsg(int position) {
+        if (isTabsDeferred()) {
+            mMsgNums.delete(position);
+            return;
+        }
         if (position >= mTabCount) {
             position = mTabCount - 1;
         }
 
-        View tabView = mTabsContainer.getChildAt(position);
-        MsgView tipView = (MsgView) tabView.findViewById(R.id.rtv_msg_tip);
+        mMsgNums.delete(position);
+        if (mTabRenderer != null) {
+            mTabRenderer.setMsg(position, -1);
+            invalidate();
+            return;
+        }
+
+        TabViewHolder holder = getTabHolder(position);
+        MsgView tipView = holder.msgView;
         if (tipView != null) {
             tipView.setVisibility(View.GONE);
         }
     }
 
+    /* -- 批量更新未读消息 -- */
+    private final SparseIntArray mPendingMsgs = new SparseIntArray();
+    private boolean mMsgUpdateScheduled;
+    private final Runnable mApplyMsgsRunnable = this::applyPendingMsgs;
+
+    /**
+     * 批量更新未读消息,多次调用会合并到下一帧统一生效,与当前状态相同的tab不会被更新
+     *
+     * @param msgs key为tab位置,value小于0隐藏,等于0显示红点,大于0显示数字
+     */
+    public void updateMsgs(SparseIntArray msgs) {
+        for (int i = 0; i < msgs.size(); i++) {
+            mPendingMsgs.put(msgs.keyAt(i), msgs.valueAt(i));
+        }
+        if (!mMsgUpdateScheduled) {
+            mMsgUpdateScheduled = true;
+            ViewCompat.postOnAnimation(this, mApplyMsgsRunnable);
+        }
+    }
+
+    private void applyPendingMsgs() {
+        mMsgUpdateScheduled = false;
+        if (isTabsDeferred()) {
+            // tab创建完成后再应用
+            return;
+        }
+        for (int i = 0; i < mPendingMsgs.size(); i++) {
+            int position = mPendingMsgs.keyAt(i);
+            int num = mPendingMsgs.valueAt(i);
+            if (position < 0 || position >= mTabCount) {
+                continue;
+            }
+            int index = mMsgNums.indexOfKey(position);
+            if (num < 0) {
+                if (index >= 0) {
+                    hideMsg(position);
+                }
+            } else if (index < 0 || mMsgNums.valueAt(index) != num) {
+                showMsg(position, num);
+            }
+        }
+        mPendingMsgs.clear();
+    }
+
     /**
      * 设置提示红点偏移,注意
      * 1.控件为固定高度:参照点为tab内容的右上角
      * 2.控件高度不固定(WRAP_CONTENT):参照点为tab内容的右上角,此时高度已是红点的最高显示范围,所以这时bottomPadding其实就是topPadding
      */
     public void setMsgMargin(int position, float leftPadding, float bottomPadding) {
+        if (isTabsDeferred()) {
+            return;
+        }
         if (position >= mTabCount) {
             position = mTabCount - 1;
         }
-        View tabView = mTabsContainer.getChildAt(position);
-        MsgView tipView = (MsgView) tabView.findViewById(R.id.rtv_msg_tip);
+        if (mTabRenderer != null) {
+            mTabRenderer.setMsgMargin(position, leftPadding, bottomPadding);
+            invalidate();
+            return;
+        }
+        TabViewHolder holder = getTabHolder(position);
+        MsgView tipView = holder.msgView;
         if (tipView != null) {
-            TextView tabTitleView = (TextView) tabView.findViewById(R.id.tv_tab_title);
+            TextView tabTitleView = holder.titleView;
             mTextPaint.setTextSize(mTextSize);
             float textWidth = mTextPaint.measureText(tabTitleView.getText().toString());
             float textHeight = mTextPaint.descent() - mTextPaint.ascent();
@@ -933,8 +1935,8 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
         if (position >= mTabCount) {
             position = mTabCount - 1;
         }
-        View tabView = mTabsContainer.getChildAt(position);
-        return (MsgView) tabView.findViewById(R.id.rtv_msg_tip);
+        TabViewHolder holder = mTabRenderer != null ? null : getTabHolder(position);
+        return holder == null ? null : holder.msgView;
     }
 
     private OnTabSelectListener mListener;
@@ -958,30 +1960,14 @@ public class CommonTabLayout extends FrameLayout implements ValueAnimator.Animat
             Bundle bundle = (Bundle) state;
             mCurrentTab = bundle.getInt("mCurrentTab");
             state = bundle.getParcelable("instanceState");
-            if (mCurrentTab != 0 && mTabsContainer.getChildCount() > 0) {
+            if (mCurrentTab != 0 && mTabCount > 0) {
                 updateTabSelection(mCurrentTab);
             }
         }
         super.onRestoreInstanceState(state);
     }
 
-    static class IndicatorPoint {
-        public float left;
-        public float right;
-    }
-
     private final IndicatorPoint mCurrentP = new IndicatorPoint();
     private final IndicatorPoint mLastP = new IndicatorPoint();
-
-    static class PointEvaluator implements TypeEvaluator<IndicatorPoint> {
-        @Override
-        public IndicatorPoint evaluate(float fraction, IndicatorPoint startValue, IndicatorPoint endValue) {
-            float left = startValue.left + fraction * (endValue.left - startValue.left);
-            float right = startValue.right + fraction * (endValue.right - startValue.right);
-            IndicatorPoint point = new IndicatorPoint();
-            point.left = left;
-            point.right = right;
-            return point;
-        }
-    }
+    private final IndicatorPoint mAnimP = new IndicatorPoint();
 }
@@ -1,6 +1,7 @@
 package com.github.tablayout;
 
-import android.animation.TypeEvaluator;
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
 import android.animation.ValueAnimator;
 import android.content.Context;
 import android.content.res.TypedArray;
@@ -11,9 +12,14 @@ import android.graphics.Rect;
 import android.graphics.drawable.GradientDrawable;
 import android.os.Bundle;
 import android.os.Parcelable;
+import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
 import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.animation.OvershootInterpolator;
@@ -25,12 +31,28 @@ import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentActivity;
 
 import com.github.tablayout.listener.OnTabSelectListener;
+import com.github.tablayout.listener.TabLayoutMetricsListener;
+import com.github.tablayout.listener.TabFragmentProvider;
+import com.github.tablayout.listener.TabItemCallback;
+import com.github.tablayout.utils.AsyncTabInflater;
 import com.github.tablayout.utils.DimensionUtils;
 import com.github.tablayout.utils.FragmentChangeManager;
+import com.github.tablayout.utils.IndicatorPoint;
+import com.github.tablayout.utils.TabDiff;
+import com.github.tablayout.utils.TabEdgeIndex;
+import com.github.tablayout.utils.TabMetricsTracker;
+import com.github.tablayout.utils.TabOffsets;
+import com.github.tablayout.utils.TabTextPrecomputer;
 import com.github.tablayout.utils.UnreadMsgUtils;
+import com.github.tablayout.widget.DecorationCache;
+import com.github.tablayout.widget.IndicatorView;
 import com.github.tablayout.widget.MsgView;
+import com.github.tablayout.widget.TabCanvasRenderer;
+import com.github.tablayout.widget.TabViewHolder;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
 
 /**
  * segment 使用，不需要与ViewPager关联
@@ -39,6 +61,10 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
     private final Context mContext;
     private String[] mTitles;
     private final LinearLayout mTabsContainer;
+    /**
+     * tab边界索引,每次布局后重建
+     */
+    private final TabEdgeIndex mTabEdges;
     private int mCurrentTab;
     private int mLastTab;
     private int mTabCount;
@@ -90,10 +116,48 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
     /* -- anim -- */
     private final ValueAnimator mValueAnimator;
     private final OvershootInterpolator mInterpolator = new OvershootInterpolator(0.8f);
+    /**
+     * 指示器覆盖层,为null时指示器在onDraw中绘制
+     */
+    private IndicatorView mIndicatorView;
 
     private FragmentChangeManager mFragmentChangeManager;
+    private boolean mFragmentCommitNow;
+    private boolean mFragmentAllowStateLoss;
+    private boolean mFragmentLazy;
+    private boolean mFragmentPrefetch;
     private final float[] mRadiusArr = new float[8];
 
+    /**
+     * 当前以选中样式显示的tab,切换时只需更新它和新选中的tab
+     */
+    private int mStyledTab = -1;
+
+    /* -- canvas rendering -- */
+    private TabCanvasRenderer mTabRenderer;
+    private final TabCanvasRenderer.Callback mRendererCallback = new TabCanvasRenderer.Callback() {
+        @Override
+        public int getSelectedTab() {
+            return mCurrentTab;
+        }
+
+        @Override
+        public void onTabClick(int position) {
+            performTabClick(position);
+        }
+    };
+
+    /* -- async inflate -- */
+    private boolean mAsyncInflate;
+    private AsyncTabInflater mTabInflater;
+
+    /* -- precomputed titles -- */
+    private Executor mTextPrecomputeExecutor;
+    private TabTextPrecomputer mTextPrecomputer;
+
+    /* -- metrics -- */
+    private final TabMetricsTracker mMetrics = new TabMetricsTracker(this);
+
     public SegmentTabLayout(Context context) {
         this(context, null, 0);
     }
@@ -111,9 +175,13 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
 
         this.mContext = context;
         mTabsContainer = new LinearLayout(context);
+        mTabEdges = new TabEdgeIndex(mTabsContainer);
         addView(mTabsContainer);
 
         obtainAttributes(context, attrs);
+        if (mIndicatorView != null) {
+            addView(mIndicatorView, 0, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+        }
 
         //get layout_height
         String height = attrs.getAttributeValue("http://schemas.android.com/apk/res/android", "layout_height");
@@ -128,8 +196,17 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
             a.recycle();
         }
 
-        mValueAnimator = ValueAnimator.ofObject(new PointEvaluator(), mLastP, mCurrentP);
+        mValueAnimator = ValueAnimator.ofFloat(0f, 1f);
         mValueAnimator.addUpdateListener(this);
+        mValueAnimator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                if (useIndicatorOverlay()) {
+                    mIndicatorView.redraw();
+                }
+                mMetrics.stopFrameMonitor();
+            }
+        });
     }
 
     private void obtainAttributes(Context context, AttributeSet attrs) {
@@ -145,6 +222,9 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
         mIndicatorAnimEnable = ta.getBoolean(R.styleable.SegmentTabLayout_tl_indicator_anim_enable, false);
         mIndicatorBounceEnable = ta.getBoolean(R.styleable.SegmentTabLayout_tl_indicator_bounce_enable, true);
         mIndicatorAnimDuration = ta.getInt(R.styleable.SegmentTabLayout_tl_indicator_anim_duration, -1);
+        if (ta.getBoolean(R.styleable.SegmentTabLayout_tl_indicator_overlay, false)) {
+            mIndicatorView = new IndicatorView(context, this::drawIndicatorOverlay);
+        }
 
         mDividerColor = ta.getColor(R.styleable.SegmentTabLayout_tl_divider_color, mIndicatorColor);
         mDividerWidth = ta.getDimension(R.styleable.SegmentTabLayout_tl_divider_width, DimensionUtils.dp2px(context,1));
@@ -165,6 +245,11 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
         mBarStrokeColor = ta.getColor(R.styleable.SegmentTabLayout_tl_bar_stroke_color, mIndicatorColor);
         mBarStrokeWidth = ta.getDimension(R.styleable.SegmentTabLayout_tl_bar_stroke_width, DimensionUtils.dp2px(context,1));
 
+        if (ta.getBoolean(R.styleable.SegmentTabLayout_tl_canvas_rendering, false)) {
+            mTabRenderer = new TabCanvasRenderer(this, mRendererCallback);
+        }
+        mAsyncInflate = ta.getBoolean(R.styleable.SegmentTabLayout_tl_async_inflate, false);
+
         ta.recycle();
     }
 
@@ -178,6 +263,168 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
         notifyDataSetChanged();
     }
 
+    /**
+     * 设置tab数据,标题的排版在executor中完成
+     *
+     * @param titles
+     * @param executor
+     * @see #setTextPrecomputeExecutor(Executor)
+     */
+    public void setTabData(String[] titles, Executor executor) {
+        this.mTextPrecomputeExecutor = executor;
+        setTabData(titles);
+    }
+
+    /**
+     * 标题相同视为同一个tab
+     */
+    private static final TabItemCallback<String> DEFAULT_TITLE_CALLBACK = new TabItemCallback<String>() {
+        @Override
+        public boolean areItemsTheSame(String oldItem, String newItem) {
+            return TextUtils.equals(oldItem, newItem);
+        }
+
+        @Override
+        public boolean areContentsTheSame(String oldItem, String newItem) {
+            return TextUtils.equals(oldItem, newItem);
+        }
+    };
+
+    /**
+     * 增量更新tab数据,与当前数据对比后只添加、移除或移动有变化的tab,
+     * 未变化的tab及其未读消息保持不变。当前选中的tab仍存在时保持选中,否则回调onTabSelect。
+     * 关联了fragments时不支持
+     *
+     * @param titles
+     */
+    public void updateTabData(String[] titles) {
+        if (titles == null || titles.length == 0) {
+            throw new IllegalStateException("Titles can not be NULL or EMPTY !");
+        }
+        if (mTitles == null) {
+            setTabData(titles);
+            return;
+        }
+
+        applyTabChanges(titles, TabDiff.match(Arrays.asList(mTitles), Arrays.asList(titles), DEFAULT_TITLE_CALLBACK));
+    }
+
+    /**
+     * 在index位置插入tab,只添加新的tab,其余tab及未读消息保持不变。关联了fragments时不支持
+     */
+    public void insertTab(int index, String title) {
+        int size = mTitles == null ? 0 : mTitles.length;
+        if (index < 0 || index > size) {
+            throw new IllegalStateException("Tab index " + index + " out of range [0, " + size + "] !");
+        }
+        if (mTitles == null) {
+            setTabData(new String[]{title});
+            return;
+        }
+        ArrayList<String> titles = new ArrayList<>(Arrays.asList(mTitles));
+        titles.add(index, title);
+        applyTabChanges(titles.toArray(new String[0]), TabDiff.insert(size, index));
+    }
+
+    /**
+     * 移除index位置的tab,不能移除最后一个tab。移除当前选中的tab时选中其后一个tab并回调onTabSelect。
+     * 关联了fragments时不支持
+     */
+    public void removeTab(int index) {
+        int size = mTitles == null ? 0 : mTitles.length;
+        if (index < 0 || index >= size) {
+            throw new IllegalStateException("Tab index " + index + " out of range [0, " + size + ") !");
+        }
+        if (size == 1) {
+            throw new IllegalStateException("Titles can not be EMPTY !");
+        }
+        ArrayList<String> titles = new ArrayList<>(Arrays.asList(mTitles));
+        titles.remove(index);
+        applyTabChanges(titles.toArray(new String[0]), TabDiff.remove(size, index));
+    }
+
+    /**
+     * 将from位置的tab移动到to位置,选中状态跟随tab移动。关联了fragments时不支持
+     */
+    public void moveTab(int from, int to) {
+        int size = mTitles == null ? 0 : mTitles.length;
+        if (from < 0 || from >= size || to < 0 || to >= size) {
+            throw new IllegalStateException("Tab index out of range [0, " + size + ") !");
+        }
+        if (from == to) {
+            return;
+        }
+        ArrayList<String> titles = new ArrayList<>(Arrays.asList(mTitles));
+        titles.add(to, titles.remove(from));
+        applyTabChanges(titles.toArray(new String[0]), TabDiff.move(size, from, to));
+    }
+
+    /**
+     * 按新旧位置的对应关系更新tab,只处理有变化的tab并修正位置、选中状态和未读消息。
+     * FragmentChangeManager的fragments与tab位置绑定,关联了fragments时只能通过setTabData全量更新
+     *
+     * @param oldToNew 下标为旧位置,值为新位置
+     */
+    private void applyTabChanges(String[] titles, int[] oldToNew) {
+        if (mFragmentChangeManager != null) {
+            throw new IllegalStateException("Tabs bound to fragments can not be changed incrementally, use setTabData instead !");
+        }
+        String[] oldTitles = mTitles;
+        int count = titles.length;
+        this.mTitles = titles;
+        if (mValueAnimator.isRunning()) {
+            mValueAnimator.cancel();
+        }
+        boolean selectionRemoved = mCurrentTab >= oldToNew.length || oldToNew[mCurrentTab] == TabDiff.NO_POSITION;
+        mCurrentTab = TabDiff.remapPosition(mCurrentTab, oldToNew, count);
+        mLastTab = mCurrentTab;
+        TabDiff.remap(mMsgNums, oldToNew);
+        TabDiff.remap(mInitSetMap, oldToNew);
+
+        if (mTabRenderer != null || isInflatingTabs() || mTabsContainer.getChildCount() != oldTitles.length) {
+            // 无法复用tab时全量刷新,再恢复未读消息
+            SparseIntArray msgNums = mMsgNums.clone();
+            notifyDataSetChanged();
+            for (int i = 0; i < msgNums.size(); i++) {
+                showMsg(msgNums.keyAt(i), msgNums.valueAt(i));
+            }
+            if (selectionRemoved && mListener != null) {
+                mListener.onTabSelect(mCurrentTab);
+            }
+            return;
+        }
+
+        View[] tabViews = new View[count];
+        for (int i = oldTitles.length - 1; i >= 0; i--) {
+            View tabView = mTabsContainer.getChildAt(i);
+            int newPos = oldToNew[i];
+            if (newPos == TabDiff.NO_POSITION) {
+                mTabsContainer.removeViewAt(i);
+                continue;
+            }
+            tabViews[newPos] = tabView;
+            TabViewHolder.get(tabView).position = newPos;
+        }
+
+        for (int i = 0; i < count; i++) {
+            View tabView = tabViews[i];
+            if (tabView == null) {
+                addTab(i, View.inflate(mContext, R.layout.layout_tab_segment, null));
+            } else if (mTabsContainer.getChildAt(i) != tabView) {
+                mTabsContainer.removeView(tabView);
+                mTabsContainer.addView(tabView, i);
+            }
+        }
+        this.mTabCount = count;
+        updateTabStyles();
+        mIsFirstDraw = true;
+        invalidateIndicator();
+        if (selectionRemoved && mListener != null) {
+            // 选中的tab被移除,按切换到新的tab通知
+            mListener.onTabSelect(mCurrentTab);
+        }
+    }
+
     /**
      * 关联数据支持同时切换fragments
      *
@@ -187,7 +434,22 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
      * @param fragments
      */
     public void setTabData(String[] titles, FragmentActivity fa, int containerViewId, ArrayList<Fragment> fragments) {
-        mFragmentChangeManager = new FragmentChangeManager(fa.getSupportFragmentManager(), containerViewId, fragments);
+        mFragmentChangeManager = new FragmentChangeManager(fa.getSupportFragmentManager(), containerViewId, fragments,
+                mFragmentCommitNow, mFragmentAllowStateLoss, mFragmentLazy, mFragmentPrefetch);
+        setTabData(titles);
+    }
+
+    /**
+     * 关联数据支持同时切换fragments,fragment在首次选中时才通过provider创建并添加
+     *
+     * @param titles
+     * @param fa
+     * @param containerViewId
+     * @param provider
+     */
+    public void setTabData(String[] titles, FragmentActivity fa, int containerViewId, TabFragmentProvider provider) {
+        mFragmentChangeManager = new FragmentChangeManager(fa.getSupportFragmentManager(), containerViewId, titles.length,
+                provider, mFragmentCommitNow, mFragmentAllowStateLoss, mFragmentPrefetch);
         setTabData(titles);
     }
 
@@ -195,16 +457,108 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
      * 更新数据
      */
     public void notifyDataSetChanged() {
+        long start = mMetrics.beginSection(TabMetricsTracker.SECTION_INFLATE);
+        createTabs();
+        mMetrics.endInflate(start, mTabCount);
+    }
+
+    private void createTabs() {
+        if (mTabInflater != null) {
+            mTabInflater.cancel();
+        }
+        if (mTextPrecomputer != null) {
+            mTextPrecomputer.cancel();
+        }
+        mMsgNums.clear();
         mTabsContainer.removeAllViews();
         this.mTabCount = mTitles.length;
+        if (mTabRenderer != null) {
+            mTabRenderer.setDefaultMsgMargin(2, 2);
+            mTabRenderer.setTabs(mTitles, null, null);
+            updateTabStyles();
+            return;
+        }
+
+        if (mAsyncInflate) {
+            // tab创建完成前按没有tab处理,只显示背景
+            this.mTabCount = 0;
+            if (mTabInflater == null) {
+                mTabInflater = new AsyncTabInflater(mContext);
+            }
+            mTabInflater.inflate(R.layout.layout_tab_segment, mTitles.length, null, this::attachTabs);
+            return;
+        }
+
         View tabView;
         for (int i = 0; i < mTabCount; i++) {
             tabView = View.inflate(mContext, R.layout.layout_tab_segment, null);
-            tabView.setTag(i);
             addTab(i, tabView);
         }
 
         updateTabStyles();
+        precomputeTitles();
+    }
+
+    /**
+     * 在线程池中计算所有标题的文字布局,完成前tab隐藏,首帧不在主线程排版
+     */
+    private void precomputeTitles() {
+        if (mTextPrecomputeExecutor == null || mTabCount == 0) {
+            return;
+        }
+        if (mTextPrecomputer == null) {
+            mTextPrecomputer = new TabTextPrecomputer();
+        }
+        TextView[] titleViews = new TextView[mTabCount];
+        CharSequence[] titles = new CharSequence[mTabCount];
+        for (int i = 0; i < mTabCount; i++) {
+            titleViews[i] = getTabHolder(i).titleView;
+            titles[i] = titleViews[i].getText();
+        }
+        mTextPrecomputer.precompute(mTabsContainer, titleViews, titles, mTextPrecomputeExecutor, this::onTitlesPrecomputed);
+    }
+
+    private void onTitlesPrecomputed() {
+        // 指示器按显示后的布局重新计算
+        mIsFirstDraw = true;
+        invalidateIndicator();
+    }
+
+    /**
+     * 标题的文字布局是否还在计算,此时tab隐藏,不绘制指示器和分割线
+     */
+    private boolean isTitlesPending() {
+        return mTextPrecomputer != null && mTextPrecomputer.isPending();
+    }
+
+    /**
+     * 异步创建的tab全部完成后一次性添加,并补上等待期间设置的未读消息
+     */
+    private void attachTabs(View[] tabViews) {
+        this.mTabCount = tabViews.length;
+        for (int i = 0; i < mTabCount; i++) {
+            addTab(i, tabViews[i]);
+        }
+        updateTabStyles();
+        precomputeTitles();
+        // 等待期间选中的tab在这里生效,指示器在下一次绘制时按新的布局计算
+        if (mValueAnimator.isRunning()) {
+            mValueAnimator.cancel();
+        }
+        mLastTab = mCurrentTab;
+        mIsFirstDraw = true;
+        invalidateIndicator();
+
+        SparseIntArray msgNums = mMsgNums.clone();
+        for (int i = 0; i < msgNums.size(); i++) {
+            if (msgNums.keyAt(i) < mTabCount) {
+                showMsg(msgNums.keyAt(i), msgNums.valueAt(i));
+            }
+        }
+    }
+
+    private boolean isInflatingTabs() {
+        return mTabInflater != null && mTabInflater.isPending();
     }
 
     /**
@@ -214,22 +568,10 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
      * @param tabView
      */
     private void addTab(final int position, View tabView) {
-        TextView tabTitleView = (TextView) tabView.findViewById(R.id.tv_tab_title);
-        tabTitleView.setText(mTitles[position]);
-
-        tabView.setOnClickListener(v -> {
-            int childPosition = (Integer) v.getTag();
-            if (mCurrentTab != childPosition) {
-                setCurrentTab(childPosition);
-                if (mListener != null) {
-                    mListener.onTabSelect(childPosition);
-                }
-            } else {
-                if (mListener != null) {
-                    mListener.onTabReselect(childPosition);
-                }
-            }
-        });
+        TabViewHolder holder = TabViewHolder.create(tabView, position);
+        holder.titleView.setText(mTitles[position]);
+
+        tabView.setOnClickListener(v -> performTabClick(TabViewHolder.get(v).position));
 
         // 每一个Tab的布局参数
         LinearLayout.LayoutParams itemTabLp = mTabSpaceEqual ?
@@ -241,19 +583,50 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
         mTabsContainer.addView(tabView, position, itemTabLp);
     }
 
+    private TabViewHolder getTabHolder(int position) {
+        return TabViewHolder.get(mTabsContainer.getChildAt(position));
+    }
+
+    private void performTabClick(int position) {
+        if (mCurrentTab != position) {
+            setCurrentTab(position);
+            if (mListener != null) {
+                mListener.onTabSelect(position);
+            }
+        } else {
+            if (mListener != null) {
+                mListener.onTabReselect(position);
+            }
+        }
+    }
+
     /**
      * 更新tab样式
      */
     private void updateTabStyles() {
+        mStyledTab = mCurrentTab;
+        if (mTabRenderer != null) {
+            mTabRenderer.setTextStyle(mTextSize, mSelectedTextSize, mTextSelectColor, mTextUnselectColor, mTextBold, mTextAllCaps);
+            mTabRenderer.setIconStyle(false, Gravity.LEFT, 0, 0, 0);
+            layoutCanvasTabs();
+            requestLayout();
+            invalidate();
+            return;
+        }
+
         for (int i = 0; i < mTabCount; i++) {
-            View tabView = mTabsContainer.getChildAt(i);
-            tabView.setPadding((int) mTabPadding, 0, (int) mTabPadding, 0);
-            TextView tabTitleView = (TextView) tabView.findViewById(R.id.tv_tab_title);
+            TabViewHolder holder = getTabHolder(i);
+            holder.itemView.setPadding((int) mTabPadding, 0, (int) mTabPadding, 0);
+            TextView tabTitleView = holder.titleView;
             tabTitleView.setTextColor(i == mCurrentTab ? mTextSelectColor : mTextUnselectColor);
             tabTitleView.setTextSize(TypedValue.COMPLEX_UNIT_PX, i == mCurrentTab ? mSelectedTextSize : mTextSize);
 //            tabTitleView.setPadding((int) mTabPadding, 0, (int) mTabPadding, 0);
             if (mTextAllCaps) {
-                tabTitleView.setText(tabTitleView.getText().toString().toUpperCase());
+                String upperText = tabTitleView.getText().toString().toUpperCase();
+                // 已经是大写时不重新设置,避免丢弃预先计算的文字布局
+                if (!TextUtils.equals(upperText, tabTitleView.getText())) {
+                    tabTitleView.setText(upperText);
+                }
             }
 
             if (mTextBold == TEXT_BOLD_BOTH) {
@@ -270,30 +643,118 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
      * @param position
      */
     private void updateTabSelection(int position) {
-        for (int i = 0; i < mTabCount; ++i) {
-            View tabView = mTabsContainer.getChildAt(i);
-            final boolean isSelect = i == position;
-            TextView tabTitleView = (TextView) tabView.findViewById(R.id.tv_tab_title);
-            tabTitleView.setTextColor(isSelect ? mTextSelectColor : mTextUnselectColor);
+        int lastTab = mStyledTab;
+        if (lastTab == position) {
+            return;
+        }
+        mStyledTab = position;
+
+        if (mTabRenderer != null) {
+            mTabRenderer.notifySelectionChanged(lastTab, position);
+            invalidate();
+            return;
+        }
+
+        if (lastTab >= 0 && lastTab < mTabCount) {
+            updateTabSelection(lastTab, false);
+        }
+        if (position < mTabCount) {
+            updateTabSelection(position, true);
+        }
+    }
+
+    /**
+     * 更新单个tab的选中样式,选中与未选中字号相同时不修改字号以避免重新布局
+     */
+    private void updateTabSelection(int position, boolean isSelect) {
+        TabViewHolder holder = getTabHolder(position);
+        TextView tabTitleView = holder.titleView;
+        tabTitleView.setTextColor(isSelect ? mTextSelectColor : mTextUnselectColor);
+        if (mSelectedTextSize != mTextSize) {
             tabTitleView.setTextSize(TypedValue.COMPLEX_UNIT_PX, isSelect ? mSelectedTextSize : mTextSize);
-            if (mTextBold == TEXT_BOLD_WHEN_SELECT) {
-                tabTitleView.getPaint().setFakeBoldText(isSelect);
+        }
+        if (mTextBold == TEXT_BOLD_WHEN_SELECT) {
+            tabTitleView.getPaint().setFakeBoldText(isSelect);
+            tabTitleView.invalidate();
+        }
+    }
+
+    /**
+     * canvas绘制模式下根据当前尺寸计算tab宽度表
+     */
+    private void layoutCanvasTabs() {
+        mTabRenderer.layoutTabs(mTabsContainer.getWidth(), mTabSpaceEqual, mTabWidth, mTabPadding);
+        mTabRenderer.setBounds(mTabsContainer.getLeft(), mTabsContainer.getTop(), mTabsContainer.getBottom());
+        int minWidth = mTabSpaceEqual && mTabWidth <= 0 ? 0 : mTabRenderer.getOffsets().getTotalWidth();
+        if (mTabsContainer.getMinimumWidth() != minWidth) {
+            mTabsContainer.setMinimumWidth(minWidth);
+        }
+        int minHeight = mTabRenderer.getContentHeight();
+        if (mTabsContainer.getMinimumHeight() != minHeight) {
+            mTabsContainer.setMinimumHeight(minHeight);
+        }
+    }
+
+    /**
+     * @return tab宽度表,tab变化后还未重新布局时返回null
+     */
+    private TabOffsets getTabOffsets() {
+        return mTabRenderer != null ? mTabRenderer.getOffsets() : mTabEdges.getOffsets();
+    }
+
+    private int getTabLeft(int position) {
+        TabOffsets offsets = getTabOffsets();
+        if (offsets != null) {
+            return offsets.getLeft(position);
+        }
+        View tabView = mTabsContainer.getChildAt(position);
+        return tabView == null ? 0 : tabView.getLeft();
+    }
+
+    private int getTabRight(int position) {
+        TabOffsets offsets = getTabOffsets();
+        if (offsets != null) {
+            return offsets.getRight(position);
+        }
+        View tabView = mTabsContainer.getChildAt(position);
+        return tabView == null ? 0 : tabView.getRight();
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        if (mTabRenderer != null) {
+            layoutCanvasTabs();
+        } else {
+            mTabEdges.rebuild();
+        }
+        if (mIndicatorView != null) {
+            //覆盖层与TabLayout重合,指示器使用与onDraw相同的坐标
+            mIndicatorView.layout(0, 0, getWidth(), getHeight());
+            if (!mValueAnimator.isRunning()) {
+                mIndicatorView.redraw();
             }
         }
+        mDecorationCache.invalidate();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mDecorationCache.release();
+        mMetrics.stopFrameMonitor();
+        mMetrics.cancelTabSwitch();
     }
 
     private void calcOffset() {
-        final View currentTabView = mTabsContainer.getChildAt(this.mCurrentTab);
-        mCurrentP.left = currentTabView.getLeft();
-        mCurrentP.right = currentTabView.getRight();
+        mCurrentP.left = getTabLeft(this.mCurrentTab);
+        mCurrentP.right = getTabRight(this.mCurrentTab);
 
-        final View lastTabView = mTabsContainer.getChildAt(this.mLastTab);
-        mLastP.left = lastTabView.getLeft();
-        mLastP.right = lastTabView.getRight();
+        mLastP.left = getTabLeft(this.mLastTab);
+        mLastP.right = getTabRight(this.mLastTab);
         if (mLastP.left == mCurrentP.left && mLastP.right == mCurrentP.right) {
-            invalidate();
+            invalidateIndicator();
         } else {
-            mValueAnimator.setObjectValues(mLastP, mCurrentP);
             if (mIndicatorBounceEnable) {
                 mValueAnimator.setInterpolator(mInterpolator);
             }
@@ -303,13 +764,13 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
             }
             mValueAnimator.setDuration(mIndicatorAnimDuration);
             mValueAnimator.start();
+            mMetrics.startFrameMonitor();
         }
     }
 
     private void calcIndicatorRect() {
-        View currentTabView = mTabsContainer.getChildAt(this.mCurrentTab);
-        float left = currentTabView.getLeft();
-        float right = currentTabView.getRight();
+        float left = getTabLeft(this.mCurrentTab);
+        float right = getTabRight(this.mCurrentTab);
 
         mIndicatorRect.left = (int) left;
         mIndicatorRect.right = (int) right;
@@ -361,24 +822,69 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
 
     @Override
     public void onAnimationUpdate(ValueAnimator animation) {
-        IndicatorPoint p = (IndicatorPoint) animation.getAnimatedValue();
+        IndicatorPoint p = mAnimP;
+        p.evaluate(animation.getAnimatedFraction(), mLastP, mCurrentP);
         mIndicatorRect.left = (int) p.left;
         mIndicatorRect.right = (int) p.right;
-        invalidate();
+        if (useIndicatorOverlay()) {
+            int paddingLeft = getPaddingLeft();
+            // 有圆角时缩放会拉伸圆角,小于0时圆角为高度的一半
+            mIndicatorView.moveTo(paddingLeft + mIndicatorRect.left, paddingLeft + mIndicatorRect.right,
+                    mIndicatorCornerRadius == 0);
+        } else {
+            invalidate();
+        }
     }
 
     private boolean mIsFirstDraw = true;
 
+    /**
+     * 背景框和分割线只在布局或样式变化时重新录制
+     */
+    private final DecorationCache mDecorationCache = new DecorationCache(this::drawDecorations);
+    /**
+     * 录制背景框时使用的圆角
+     */
+    private float mDecorationCornerRadius = -1;
+
+    private void drawDecorations(Canvas canvas) {
+        int height = getHeight();
+        int paddingLeft = getPaddingLeft();
+
+        // draw rect
+        mRectDrawable.setColor(mBarColor);
+        mRectDrawable.setStroke((int) mBarStrokeWidth, mBarStrokeColor);
+        mRectDrawable.setCornerRadius(mIndicatorCornerRadius);
+        mRectDrawable.setBounds(getPaddingLeft(), getPaddingTop(), getWidth() - getPaddingRight(), getHeight() - getPaddingBottom());
+        mRectDrawable.draw(canvas);
+
+        // draw divider
+        if (!mIndicatorAnimEnable && mDividerWidth > 0) {
+            mDividerPaint.setStrokeWidth(mDividerWidth);
+            mDividerPaint.setColor(mDividerColor);
+            for (int i = 0; i < mTabCount - 1; i++) {
+                int tabRight = getTabRight(i);
+                canvas.drawLine(paddingLeft + tabRight, mDividerPadding, paddingLeft + tabRight, height - mDividerPadding, mDividerPaint);
+            }
+        }
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        long start = mMetrics.beginSection(TabMetricsTracker.SECTION_DRAW);
+        super.draw(canvas);
+        mMetrics.endDraw(start);
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
-        if (isInEditMode() || mTabCount <= 0) {
+        if (isInEditMode() || mTabCount <= 0 || isInflatingTabs() || isTitlesPending()) {
             return;
         }
 
         int height = getHeight();
-        int paddingLeft = getPaddingLeft();
 
         if (mIndicatorHeight < 0) {
             mIndicatorHeight = height - mIndicatorMarginTop - mIndicatorMarginBottom;
@@ -388,24 +894,32 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
             mIndicatorCornerRadius = mIndicatorHeight / 2;
         }
 
-        // draw rect
-        mRectDrawable.setColor(mBarColor);
-        mRectDrawable.setStroke((int) mBarStrokeWidth, mBarStrokeColor);
-        mRectDrawable.setCornerRadius(mIndicatorCornerRadius);
-        mRectDrawable.setBounds(getPaddingLeft(), getPaddingTop(), getWidth() - getPaddingRight(), getHeight() - getPaddingBottom());
-        mRectDrawable.draw(canvas);
+        if (mIndicatorCornerRadius != mDecorationCornerRadius) {
+            mDecorationCornerRadius = mIndicatorCornerRadius;
+            mDecorationCache.invalidate();
+        }
+        mDecorationCache.draw(canvas, getWidth(), height);
 
-        // draw divider
-        if (!mIndicatorAnimEnable && mDividerWidth > 0) {
-            mDividerPaint.setStrokeWidth(mDividerWidth);
-            mDividerPaint.setColor(mDividerColor);
-            for (int i = 0; i < mTabCount - 1; i++) {
-                View tab = mTabsContainer.getChildAt(i);
-                canvas.drawLine(paddingLeft + tab.getRight(), mDividerPadding, paddingLeft + tab.getRight(), height - mDividerPadding, mDividerPaint);
-            }
+        if (!useIndicatorOverlay()) {
+            drawIndicator(canvas);
         }
 
+        if (mTabRenderer != null) {
+            mTabRenderer.draw(canvas);
+        }
+    }
 
+    private void drawIndicatorOverlay(Canvas canvas) {
+        if (isInEditMode() || mTabCount <= 0 || isInflatingTabs() || isTitlesPending() || !useIndicatorOverlay()) {
+            return;
+        }
+        drawIndicator(canvas);
+        int paddingLeft = getPaddingLeft();
+        mIndicatorView.setDrawnBounds(paddingLeft + mIndicatorRect.left, paddingLeft + mIndicatorRect.right);
+    }
+
+    private void drawIndicator(Canvas canvas) {
+        int paddingLeft = getPaddingLeft();
         // draw indicator line
         if (mIndicatorAnimEnable) {
             if (mIsFirstDraw) {
@@ -422,22 +936,67 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
                 (int) (mIndicatorMarginTop + mIndicatorHeight));
         mIndicatorDrawable.setCornerRadii(mRadiusArr);
         mIndicatorDrawable.draw(canvas);
+    }
 
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (mTabRenderer != null && mTabRenderer.onTouchEvent(event)) {
+            return true;
+        }
+        return super.onTouchEvent(event);
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        if (mTabRenderer != null && mTabRenderer.dispatchHoverEvent(event)) {
+            return true;
+        }
+        return super.dispatchHoverEvent(event);
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        if (mTabRenderer != null && mTabRenderer.dispatchKeyEvent(event)) {
+            return true;
+        }
+        return super.dispatchKeyEvent(event);
+    }
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        if (mTabRenderer != null) {
+            mTabRenderer.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        }
     }
 
     /* -- setter and getter -- */
     public void setCurrentTab(int currentTab) {
+        long switchStart = mMetrics.beginTabSwitch(this.mCurrentTab, currentTab);
         mLastTab = this.mCurrentTab;
         this.mCurrentTab = currentTab;
-        updateTabSelection(currentTab);
+        boolean deferred = isInflatingTabs();
+        if (deferred) {
+            // tab还未添加,添加时按mCurrentTab更新选中样式和指示器
+            mLastTab = currentTab;
+        } else {
+            updateTabSelection(currentTab);
+        }
         if (mFragmentChangeManager != null) {
+            long fragmentsStart = mMetrics.beginSection(TabMetricsTracker.SECTION_FRAGMENTS);
             mFragmentChangeManager.setFragments(currentTab);
+            mMetrics.endSection(fragmentsStart);
+        }
+        if (deferred) {
+            mMetrics.endSection(switchStart);
+            return;
         }
         if (mIndicatorAnimEnable) {
             calcOffset();
         } else {
-            invalidate();
+            invalidateIndicator();
         }
+        mMetrics.endSection(switchStart);
     }
 
     public void setTabPadding(float tabPadding) {
@@ -457,17 +1016,17 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
 
     public void setIndicatorColor(int indicatorColor) {
         this.mIndicatorColor = indicatorColor;
-        invalidate();
+        invalidateIndicator();
     }
 
     public void setIndicatorHeight(float indicatorHeight) {
         this.mIndicatorHeight = DimensionUtils.dp2px(getContext(), indicatorHeight);
-        invalidate();
+        invalidateIndicator();
     }
 
     public void setIndicatorCornerRadius(float indicatorCornerRadius) {
         this.mIndicatorCornerRadius = DimensionUtils.dp2px(getContext(), indicatorCornerRadius);
-        invalidate();
+        invalidateIndicator();
     }
 
     public void setIndicatorMargin(float indicatorMarginLeft, float indicatorMarginTop,
@@ -476,15 +1035,42 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
         this.mIndicatorMarginTop = DimensionUtils.dp2px(getContext(), indicatorMarginTop);
         this.mIndicatorMarginRight = DimensionUtils.dp2px(getContext(), indicatorMarginRight);
         this.mIndicatorMarginBottom = DimensionUtils.dp2px(getContext(), indicatorMarginBottom);
-        invalidate();
+        invalidateIndicator();
     }
 
     public void setIndicatorAnimDuration(long indicatorAnimDuration) {
         this.mIndicatorAnimDuration = indicatorAnimDuration;
     }
 
+    /**
+     * 设置切换fragments时事务的提交方式,需要在关联fragments的setTabData之前调用才会对初始化生效
+     *
+     * @param commitNow      是否使用commitNow同步提交
+     * @param allowStateLoss 是否允许在onSaveInstanceState之后提交
+     */
+    public void setFragmentCommitOptions(boolean commitNow, boolean allowStateLoss) {
+        this.mFragmentCommitNow = commitNow;
+        this.mFragmentAllowStateLoss = allowStateLoss;
+        if (mFragmentChangeManager != null) {
+            mFragmentChangeManager.setCommitNow(commitNow);
+            mFragmentChangeManager.setAllowStateLoss(allowStateLoss);
+        }
+    }
+
+    /**
+     * 设置fragments的加载方式,需要在关联fragments的setTabData之前调用
+     *
+     * @param lazy               是否在首次选中时才添加fragment,通过TabFragmentProvider关联时总是懒加载
+     * @param prefetchNeighbours 懒加载时是否在主线程空闲时预先添加当前tab相邻的fragment
+     */
+    public void setFragmentLoadOptions(boolean lazy, boolean prefetchNeighbours) {
+        this.mFragmentLazy = lazy;
+        this.mFragmentPrefetch = prefetchNeighbours;
+    }
+
     public void setIndicatorAnimEnable(boolean indicatorAnimEnable) {
         this.mIndicatorAnimEnable = indicatorAnimEnable;
+        mDecorationCache.invalidate();
     }
 
     public void setIndicatorBounceEnable(boolean indicatorBounceEnable) {
@@ -493,16 +1079,19 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
 
     public void setDividerColor(int dividerColor) {
         this.mDividerColor = dividerColor;
+        mDecorationCache.invalidate();
         invalidate();
     }
 
     public void setDividerWidth(float dividerWidth) {
         this.mDividerWidth = DimensionUtils.dp2px(getContext(), dividerWidth);
+        mDecorationCache.invalidate();
         invalidate();
     }
 
     public void setDividerPadding(float dividerPadding) {
         this.mDividerPadding = DimensionUtils.dp2px(getContext(), dividerPadding);
+        mDecorationCache.invalidate();
         invalidate();
     }
 
@@ -536,6 +1125,97 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
         updateTabStyles();
     }
 
+    /**
+     * 设置canvas绘制模式,开启后不再为每个tab创建子View,标题和未读消息直接绘制,
+     * 此时getTitleView和getMsgView返回null
+     */
+    public void setCanvasRendering(boolean canvasRendering) {
+        if (canvasRendering == (mTabRenderer != null)) {
+            return;
+        }
+        if (canvasRendering) {
+            mTabRenderer = new TabCanvasRenderer(this, mRendererCallback);
+        } else {
+            mTabRenderer.release();
+            mTabRenderer = null;
+            mTabsContainer.setMinimumWidth(0);
+            mTabsContainer.setMinimumHeight(0);
+        }
+        if (mTitles != null) {
+            notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * 设置性能数据回调,设置后统计tab切换、创建和绘制的耗时以及动画过程中的掉帧,
+     * 同时为各阶段添加Trace片段。为null时不做统计
+     */
+    public void setMetricsListener(TabLayoutMetricsListener listener) {
+        mMetrics.setListener(listener);
+    }
+
+    public TabLayoutMetricsListener getMetricsListener() {
+        return mMetrics.getListener();
+    }
+
+    /**
+     * 设置计算标题文字布局的线程池,设置后创建tab时标题的排版在该线程池中完成,完成前tab不显示,首帧不在主线程排版。
+     * 在下一次setTabData或notifyDataSetChanged时生效,canvas绘制模式下无效
+     *
+     * @param executor 为null时在主线程排版
+     */
+    public void setTextPrecomputeExecutor(Executor executor) {
+        this.mTextPrecomputeExecutor = executor;
+    }
+
+    /**
+     * 设置指示器覆盖层,开启后指示器单独绘制在tab下方的覆盖层中,切换动画只修改覆盖层的位移和缩放,
+     * 不再每帧重绘整个TabLayout。动画过程中圆角会随宽度一起拉伸,结束后按实际大小重新绘制。
+     * canvas绘制模式下无效
+     */
+    public void setIndicatorOverlay(boolean indicatorOverlay) {
+        if (indicatorOverlay == (mIndicatorView != null)) {
+            return;
+        }
+        if (mValueAnimator.isRunning()) {
+            mValueAnimator.end();
+        }
+        if (indicatorOverlay) {
+            mIndicatorView = new IndicatorView(mContext, this::drawIndicatorOverlay);
+            addView(mIndicatorView, 0, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+        } else {
+            removeView(mIndicatorView);
+            mIndicatorView = null;
+        }
+        invalidateIndicator();
+    }
+
+    private boolean useIndicatorOverlay() {
+        return mIndicatorView != null && mTabRenderer == null;
+    }
+
+    /**
+     * 指示器的位置或样式变化后重绘,覆盖层模式下动画过程中由动画更新
+     */
+    private void invalidateIndicator() {
+        if (useIndicatorOverlay() && !mValueAnimator.isRunning()) {
+            mIndicatorView.redraw();
+        }
+        invalidate();
+    }
+
+    /**
+     * 设置异步创建tab,开启后tab在后台线程创建,完成前只显示背景,完成后一次性添加。
+     * 在下一次setTabData或notifyDataSetChanged时生效,canvas绘制模式下无效
+     */
+    public void setAsyncInflate(boolean asyncInflate) {
+        this.mAsyncInflate = asyncInflate;
+    }
+
+    public boolean isAsyncInflate() {
+        return mAsyncInflate;
+    }
+
     public int getTabCount() {
         return mTabCount;
     }
@@ -628,15 +1308,29 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
         return mTextAllCaps;
     }
 
+    public boolean isCanvasRendering() {
+        return mTabRenderer != null;
+    }
+
+    public boolean isIndicatorOverlay() {
+        return mIndicatorView != null;
+    }
+
     public TextView getTitleView(int tab) {
-        View tabView = mTabsContainer.getChildAt(tab);
-        return (TextView) tabView.findViewById(R.id.tv_tab_title);
+        if (mTabRenderer != null) {
+            return null;
+        }
+        return getTabHolder(tab).titleView;
     }
 
 
     // show MsgTipView
     private final Paint mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
     private final SparseBooleanArray mInitSetMap = new SparseBooleanArray();
+    /**
+     * 当前显示的未读消息,key为tab位置
+     */
+    private final SparseIntArray mMsgNums = new SparseIntArray();
 
     /**
      * 显示未读消息
@@ -645,12 +1339,24 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
      * @param num      num小于等于0显示红点,num大于0显示数字
      */
     public void showMsg(int position, int num) {
+        if (isInflatingTabs()) {
+            mMsgNums.put(position, num);
+            return;
+        }
         if (position >= mTabCount) {
             position = mTabCount - 1;
         }
 
-        View tabView = mTabsContainer.getChildAt(position);
-        MsgView tipView = (MsgView) tabView.findViewById(R.id.rtv_msg_tip);
+        mMsgNums.put(position, num);
+
+        if (mTabRenderer != null) {
+            mTabRenderer.setMsg(position, num);
+            invalidate();
+            return;
+        }
+
+        TabViewHolder holder = getTabHolder(position);
+        MsgView tipView = holder.msgView;
         if (tipView != null) {
             UnreadMsgUtils.show(tipView, num);
 
@@ -670,7 +1376,7 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
      * @param position 显示tab位置
      */
     public void showDot(int position) {
-        if (position >= mTabCount) {
+        if (!isInflatingTabs() && position >= mTabCount) {
             position = mTabCount - 1;
         }
         showMsg(position, 0);
@@ -682,12 +1388,24 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
      * @param position
      */
     public void hideMsg(int position) {
+        if (isInflatingTabs()) {
+            mMsgNums.delete(position);
+            return;
+        }
         if (position >= mTabCount) {
             position = mTabCount - 1;
         }
 
-        View tabView = mTabsContainer.getChildAt(position);
-        MsgView tipView = (MsgView) tabView.findViewById(R.id.rtv_msg_tip);
+        mMsgNums.delete(position);
+
+        if (mTabRenderer != null) {
+            mTabRenderer.setMsg(position, -1);
+            invalidate();
+            return;
+        }
+
+        TabViewHolder holder = getTabHolder(position);
+        MsgView tipView = holder.msgView;
         if (tipView != null) {
             tipView.setVisibility(View.GONE);
         }
@@ -699,13 +1417,21 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
      * 2.控件高度不固定(WRAP_CONTENT):参照点为tab内容的右上角,此时高度已是红点的最高显示范围,所以这时bottomPadding其实就是topPadding
      */
     public void setMsgMargin(int position, float leftPadding, float bottomPadding) {
+        if (isInflatingTabs()) {
+            return;
+        }
         if (position >= mTabCount) {
             position = mTabCount - 1;
         }
-        View tabView = mTabsContainer.getChildAt(position);
-        MsgView tipView = (MsgView) tabView.findViewById(R.id.rtv_msg_tip);
+        if (mTabRenderer != null) {
+            mTabRenderer.setMsgMargin(position, leftPadding, bottomPadding);
+            invalidate();
+            return;
+        }
+        TabViewHolder holder = getTabHolder(position);
+        MsgView tipView = holder.msgView;
         if (tipView != null) {
-            TextView tabTitleView = (TextView) tabView.findViewById(R.id.tv_tab_title);
+            TextView tabTitleView = holder.titleView;
             mTextPaint.setTextSize(mTextSize);
             float textWidth = mTextPaint.measureText(tabTitleView.getText().toString());
             float textHeight = mTextPaint.descent() - mTextPaint.ascent();
@@ -728,8 +1454,10 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
         if (position >= mTabCount) {
             position = mTabCount - 1;
         }
-        View tabView = mTabsContainer.getChildAt(position);
-        return (MsgView) tabView.findViewById(R.id.rtv_msg_tip);
+        if (mTabRenderer != null) {
+            return null;
+        }
+        return getTabHolder(position).msgView;
     }
 
     private OnTabSelectListener mListener;
@@ -752,30 +1480,14 @@ public class SegmentTabLayout extends FrameLayout implements ValueAnimator.Anima
             Bundle bundle = (Bundle) state;
             mCurrentTab = bundle.getInt("mCurrentTab");
             state = bundle.getParcelable("instanceState");
-            if (mCurrentTab != 0 && mTabsContainer.getChildCount() > 0) {
+            if (mCurrentTab != 0 && mTabCount > 0) {
                 updateTabSelection(mCurrentTab);
             }
         }
         super.onRestoreInstanceState(state);
     }
 
-    static class IndicatorPoint {
-        public float left;
-        public float right;
-    }
-
     private final IndicatorPoint mCurrentP = new IndicatorPoint();
     private final IndicatorPoint mLastP = new IndicatorPoint();
-
-    static class PointEvaluator implements TypeEvaluator<IndicatorPoint> {
-        @Override
-        public IndicatorPoint evaluate(float fraction, IndicatorPoint startValue, IndicatorPoint endValue) {
-            float left = startValue.left + fraction * (endValue.left - startValue.left);
-            float right = startValue.right + fraction * (endValue.right - startValue.right);
-            IndicatorPoint point = new IndicatorPoint();
-            point.left = left;
-            point.right = right;
-            return point;
-        }
-    }
+    private final IndicatorPoint mAnimP = new IndicatorPoint();
 }
@@ -10,37 +10,87 @@ import android.graphics.Rect;
 import android.graphics.drawable.GradientDrawable;
 import android.os.Bundle;
 import android.os.Parcelable;
+import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
 import android.util.TypedValue;
+import android.view.Choreographer;
 import android.view.Gravity;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.HorizontalScrollView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import androidx.core.view.ViewCompat;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentActivity;
 import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentPagerAdapter;
+import androidx.fragment.app.FragmentTransaction;
 import androidx.viewpager.widget.PagerAdapter;
 import androidx.viewpager.widget.ViewPager;
+import androidx.viewpager2.adapter.FragmentStateAdapter;
+import androidx.viewpager2.widget.ViewPager2;
 
 import com.github.tablayout.listener.OnTabSelectListener;
+import com.github.tablayout.listener.TabLayoutMetricsListener;
+import com.github.tablayout.listener.TabFragmentProvider;
+import com.github.tablayout.utils.AsyncTabInflater;
 import com.github.tablayout.utils.DimensionUtils;
+import com.github.tablayout.utils.TabDiff;
+import com.github.tablayout.utils.TabEdgeIndex;
+import com.github.tablayout.utils.TabMetricsTracker;
+import com.github.tablayout.utils.TabOffsets;
+import com.github.tablayout.utils.TabTextPrecomputer;
+import com.github.tablayout.utils.TitleWidthCache;
 import com.github.tablayout.utils.UnreadMsgUtils;
+import com.github.tablayout.widget.DecorationCache;
 import com.github.tablayout.widget.MsgView;
+import com.github.tablayout.widget.RecycledTabPool;
+import com.github.tablayout.widget.TabCanvasRenderer;
+import com.github.tablayout.widget.TabViewHolder;
+import com.github.tablayout.widget.TabStripLayout;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 /** 滑动TabLayout,对于ViewPager的依赖性强 */
 public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.OnPageChangeListener {
     private final Context mContext;
     private ViewPager mViewPager;
+    private ViewPager2 mViewPager2;
+    private final ViewPager2.OnPageChangeCallback mPageChangeCallback = new ViewPager2.OnPageChangeCallback() {
+        @Override
+        public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+            SlidingTabLayout.this.onPageScrolled(position, positionOffset, positionOffsetPixels);
+        }
+
+        @Override
+        public void onPageSelected(int position) {
+            SlidingTabLayout.this.onPageSelected(position);
+        }
+
+        @Override
+        public void onPageScrollStateChanged(int state) {
+            SlidingTabLayout.this.onPageScrollStateChanged(state);
+        }
+    };
     private ArrayList<String> mTitles;
-    private final LinearLayout mTabsContainer;
+    private final TabStripLayout mTabsContainer;
+    /**
+     * 普通模式下的tab边界索引,每次布局后重建
+     */
+    private final TabEdgeIndex mTabEdges;
     private int mCurrentTab;
     private float mCurrentPositionOffset;
     private int mTabCount;
@@ -106,6 +156,72 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
     private int mHeight;
     private boolean mSnapOnTabClick;
 
+    /* -- InnerPagerAdapter离屏页面保留策略 -- */
+    private int mMaxRetainedPages = -1;
+    private boolean mKeepRetainedState = true;
+
+    /* -- 标题宽度缓存,分别对应未选中和选中字号 -- */
+    private final TitleWidthCache mTitleWidths = new TitleWidthCache();
+    private final TitleWidthCache mSelectedTitleWidths = new TitleWidthCache();
+
+    /**
+     * 当前以选中样式显示的tab,切换时只需更新它和新选中的tab
+     */
+    private int mStyledTab = -1;
+
+    /* -- 批量更新:样式修改与滚动偏移记录下来,在下一帧统一生效 -- */
+    private int mBatchEditDepth;
+    private boolean mCoalesceScrollUpdates;
+    private boolean mPendingStyleUpdate;
+    private boolean mPendingScroll;
+    private boolean mPendingRedraw;
+    private boolean mFrameScheduled;
+    private final Choreographer.FrameCallback mFrameCallback = this::doFrame;
+
+    /**
+     * 虚拟化模式:只绑定可见范围内的tab,tab宽度由宽度表预先计算
+     */
+    private static final int VIRTUAL_EXTRA_TABS = 2;
+    private boolean mVirtualized;
+    private final TabOffsets mTabOffsets = new TabOffsets();
+    private final SparseArray<View> mBoundTabs = new SparseArray<>();
+    private final ArrayDeque<View> mRecycledTabs = new ArrayDeque<>();
+    private final SparseIntArray mMsgNums = new SparseIntArray();
+
+    /**
+     * canvas绘制模式:不创建tab子View,优先级高于虚拟化模式
+     */
+    private TabCanvasRenderer mTabRenderer;
+    private final TabCanvasRenderer.Callback mRendererCallback = new TabCanvasRenderer.Callback() {
+        @Override
+        public int getSelectedTab() {
+            return hasPager() ? getPagerCurrentItem() : mCurrentTab;
+        }
+
+        @Override
+        public void onTabClick(int position) {
+            performTabClick(position);
+        }
+    };
+
+    /* -- async inflate,仅对非虚拟化模式生效 -- */
+    private boolean mAsyncInflate;
+    private AsyncTabInflater mTabInflater;
+
+    /* -- shared tab pool -- */
+    private RecycledTabPool mTabPool;
+    /**
+     * 离开窗口时tab已归还到缓存池,重新进入窗口时再添加
+     */
+    private boolean mTabsRecycled;
+
+    /* -- precomputed titles,仅对非虚拟化模式生效 -- */
+    private Executor mTextPrecomputeExecutor;
+    private TabTextPrecomputer mTextPrecomputer;
+
+    /* -- metrics -- */
+    private final TabMetricsTracker mMetrics = new TabMetricsTracker(this);
+
     public SlidingTabLayout(Context context) {
         this(context, null, 0);
     }
@@ -122,10 +238,14 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
         setClipToPadding(false);
 
         this.mContext = context;
-        mTabsContainer = new LinearLayout(context);
+        mTabsContainer = new TabStripLayout(context);
+        mTabEdges = new TabEdgeIndex(mTabsContainer);
         addView(mTabsContainer);
 
         obtainAttributes(context, attrs);
+        if (mVirtualized && mTabRenderer == null) {
+            mTabsContainer.setVirtualOffsets(mTabOffsets);
+        }
 
         //get layout_height
         String height = attrs.getAttributeValue("http://schemas.android.com/apk/res/android", "layout_height");
@@ -174,6 +294,11 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
         mTabSpaceEqual = ta.getBoolean(R.styleable.SlidingTabLayout_tl_tab_space_equal, false);
         mTabWidth = ta.getDimension(R.styleable.SlidingTabLayout_tl_tab_width, DimensionUtils.dp2px(context,-1));
         mTabPadding = ta.getDimension(R.styleable.SlidingTabLayout_tl_tab_padding, mTabSpaceEqual || mTabWidth > 0 ? DimensionUtils.dp2px(context,0) : DimensionUtils.dp2px(context,20));
+        mVirtualized = ta.getBoolean(R.styleable.SlidingTabLayout_tl_tab_virtualized, false);
+        if (ta.getBoolean(R.styleable.SlidingTabLayout_tl_canvas_rendering, false)) {
+            mTabRenderer = new TabCanvasRenderer(this, mRendererCallback);
+        }
+        mAsyncInflate = ta.getBoolean(R.styleable.SlidingTabLayout_tl_async_inflate, false);
 
         ta.recycle();
     }
@@ -184,6 +309,7 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
             throw new IllegalStateException("ViewPager or ViewPager adapter can not be NULL !");
         }
 
+        unbindPager();
         this.mViewPager = vp;
 
         this.mViewPager.removeOnPageChangeListener(this);
@@ -205,6 +331,7 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
             throw new IllegalStateException("Titles length must be the same as the page count !");
         }
 
+        unbindPager();
         this.mViewPager = vp;
         mTitles = new ArrayList<>();
         Collections.addAll(mTitles, titles);
@@ -224,68 +351,416 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
             throw new IllegalStateException("Titles can not be EMPTY !");
         }
 
+        unbindPager();
         this.mViewPager = vp;
-        this.mViewPager.setAdapter(new InnerPagerAdapter(fa.getSupportFragmentManager(), fragments, titles));
+        InnerPagerAdapter adapter = new InnerPagerAdapter(fa.getSupportFragmentManager(), fragments, titles);
+        adapter.setRetention(mMaxRetainedPages, mKeepRetainedState);
+        this.mViewPager.setAdapter(adapter);
 
         this.mViewPager.removeOnPageChangeListener(this);
         this.mViewPager.addOnPageChangeListener(this);
         notifyDataSetChanged();
     }
 
+    /** 关联ViewPager2,ViewPager2的适配器不提供标题,需要传入titles */
+    public void setViewPager2(ViewPager2 vp2, String[] titles) {
+        if (vp2 == null || vp2.getAdapter() == null) {
+            throw new IllegalStateException("ViewPager2 or ViewPager2 adapter can not be NULL !");
+        }
+
+        if (titles == null || titles.length == 0) {
+            throw new IllegalStateException("Titles can not be EMPTY !");
+        }
+
+        if (titles.length != vp2.getAdapter().getItemCount()) {
+            throw new IllegalStateException("Titles length must be the same as the page count !");
+        }
+
+        unbindPager();
+        this.mViewPager2 = vp2;
+        mTitles = new ArrayList<>();
+        Collections.addAll(mTitles, titles);
+
+        this.mViewPager2.registerOnPageChangeCallback(mPageChangeCallback);
+        notifyDataSetChanged();
+    }
+
+    /**
+     * 关联ViewPager2,由FragmentStateAdapter管理Fragment生命周期,离屏页面会被销毁并在需要时重新创建
+     *
+     * @param provider 按位置创建Fragment
+     */
+    public void setViewPager2(ViewPager2 vp2, String[] titles, FragmentActivity fa, TabFragmentProvider provider) {
+        if (vp2 == null) {
+            throw new IllegalStateException("ViewPager2 can not be NULL !");
+        }
+
+        if (titles == null || titles.length == 0) {
+            throw new IllegalStateException("Titles can not be EMPTY !");
+        }
+
+        if (provider == null) {
+            throw new IllegalStateException("TabFragmentProvider can not be NULL !");
+        }
+
+        vp2.setAdapter(new InnerStateAdapter(fa, provider, titles.length));
+        setViewPager2(vp2, titles);
+    }
+
+    /** 解除与当前ViewPager或ViewPager2的关联 */
+    private void unbindPager() {
+        if (mViewPager != null) {
+            mViewPager.removeOnPageChangeListener(this);
+            mViewPager = null;
+        }
+        if (mViewPager2 != null) {
+            mViewPager2.unregisterOnPageChangeCallback(mPageChangeCallback);
+            mViewPager2 = null;
+        }
+    }
+
+    private boolean hasPager() {
+        return mViewPager != null || mViewPager2 != null;
+    }
+
+    private int getPagerItemCount() {
+        return mViewPager2 != null ? mViewPager2.getAdapter().getItemCount() : mViewPager.getAdapter().getCount();
+    }
+
+    /** ViewPager2没有页面标题,只能使用setViewPager2传入的titles */
+    private CharSequence getPagerTitle(int position) {
+        return mViewPager2 != null ? null : mViewPager.getAdapter().getPageTitle(position);
+    }
+
+    private int getPagerCurrentItem() {
+        return mViewPager2 != null ? mViewPager2.getCurrentItem() : mViewPager.getCurrentItem();
+    }
+
+    private void setPagerCurrentItem(int item) {
+        long switchStart = mMetrics.beginTabSwitch(getPagerCurrentItem(), item);
+        if (mViewPager2 != null) {
+            mViewPager2.setCurrentItem(item);
+        } else {
+            mViewPager.setCurrentItem(item);
+        }
+        mMetrics.endSection(switchStart);
+    }
+
+    private void setPagerCurrentItem(int item, boolean smoothScroll) {
+        long switchStart = mMetrics.beginTabSwitch(getPagerCurrentItem(), item);
+        if (mViewPager2 != null) {
+            mViewPager2.setCurrentItem(item, smoothScroll);
+        } else {
+            mViewPager.setCurrentItem(item, smoothScroll);
+        }
+        mMetrics.endSection(switchStart);
+    }
+
     /** 更新数据 */
     public void notifyDataSetChanged() {
+        long start = mMetrics.beginSection(TabMetricsTracker.SECTION_INFLATE);
+        createTabs();
+        mMetrics.endInflate(start, mTabCount);
+    }
+
+    private void createTabs() {
+        if (mTabInflater != null) {
+            mTabInflater.cancel();
+        }
+        if (mTextPrecomputer != null) {
+            mTextPrecomputer.cancel();
+        }
+        recycleBoundTabs();
+        recycleTabs();
+        mMsgNums.clear();
         mTabsContainer.removeAllViews();
-        this.mTabCount = mTitles == null ? mViewPager.getAdapter().getCount() : mTitles.size();
+        this.mTabCount = mTitles == null ? getPagerItemCount() : mTitles.size();
+        resetTitleWidths();
+        if (mTabRenderer != null) {
+            setRendererTabs();
+            return;
+        }
+        if (mVirtualized) {
+            updateTabStyles();
+            return;
+        }
+
+        if (mAsyncInflate) {
+            // tab创建完成前按没有tab处理,只显示背景
+            int count = mTabCount;
+            this.mTabCount = 0;
+            if (mTabInflater == null) {
+                mTabInflater = new AsyncTabInflater(mContext);
+            }
+            mTabInflater.inflate(R.layout.layout_tab, count, mTabPool, this::attachTabs);
+            return;
+        }
+
         View tabView;
         for (int i = 0; i < mTabCount; i++) {
-            tabView = View.inflate(mContext, R.layout.layout_tab, null);
-            CharSequence pageTitle = mTitles == null ? mViewPager.getAdapter().getPageTitle(i) : mTitles.get(i);
+            tabView = obtainTabView();
+            CharSequence pageTitle = mTitles == null ? getPagerTitle(i) : mTitles.get(i);
             addTab(i, pageTitle.toString(), tabView);
         }
 
         updateTabStyles();
+        precomputeTitles();
+    }
+
+    /**
+     * 在线程池中计算所有标题的文字布局,完成前tab隐藏,首帧不在主线程排版
+     */
+    private void precomputeTitles() {
+        if (mTextPrecomputeExecutor == null || mTabCount == 0) {
+            return;
+        }
+        if (mTextPrecomputer == null) {
+            mTextPrecomputer = new TabTextPrecomputer();
+        }
+        ArrayList<TextView> titleViews = new ArrayList<>(mTabCount);
+        ArrayList<CharSequence> titles = new ArrayList<>(mTabCount);
+        for (int i = 0; i < mTabCount; i++) {
+            TextView titleView = getTabHolder(i).titleView;
+            if (titleView != null) {
+                titleViews.add(titleView);
+                titles.add(titleView.getText());
+            }
+        }
+        mTextPrecomputer.precompute(mTabsContainer, titleViews.toArray(new TextView[0]), titles.toArray(new CharSequence[0]),
+                mTextPrecomputeExecutor, this::onTitlesPrecomputed);
+    }
+
+    private void onTitlesPrecomputed() {
+        // 显示后的第一次布局完成再滚动到当前tab
+        post(this::scrollToCurrentTab);
+        invalidate();
+    }
+
+    /**
+     * 标题的文字布局是否还在计算,此时tab隐藏,不绘制指示器和分割线
+     */
+    private boolean isTitlesPending() {
+        return mTextPrecomputer != null && mTextPrecomputer.isPending();
+    }
+
+    private View obtainTabView() {
+        View tabView = mTabPool == null ? null : mTabPool.obtain(R.layout.layout_tab, mContext);
+        return tabView != null ? tabView : View.inflate(mContext, R.layout.layout_tab, null);
+    }
+
+    /**
+     * 将当前的tab归还到缓存池,虚拟化模式下只归还已回收的tab
+     */
+    private void recycleTabs() {
+        mTabsRecycled = false;
+        if (mTabPool == null || mTabRenderer != null) {
+            return;
+        }
+        if (mVirtualized) {
+            while (!mRecycledTabs.isEmpty()) {
+                mTabPool.put(R.layout.layout_tab, mRecycledTabs.poll());
+            }
+            return;
+        }
+        for (int i = mTabsContainer.getChildCount() - 1; i >= 0; i--) {
+            mTabPool.put(R.layout.layout_tab, mTabsContainer.getChildAt(i));
+        }
+    }
+
+    /**
+     * 异步创建或从缓存池重新获取的tab一次性添加,并补上等待期间设置的未读消息
+     */
+    private void attachTabs(View[] tabViews) {
+        this.mTabCount = tabViews.length;
+        for (int i = 0; i < mTabCount; i++) {
+            CharSequence pageTitle = mTitles == null ? getPagerTitle(i) : mTitles.get(i);
+            addTab(i, pageTitle == null ? null : pageTitle.toString(), tabViews[i]);
+        }
+        updateTabStyles();
+        precomputeTitles();
+        scrollToCurrentTab();
+        mInitSetMap.clear();
+
+        SparseIntArray msgNums = mMsgNums.clone();
+        for (int i = 0; i < msgNums.size(); i++) {
+            if (msgNums.keyAt(i) < mTabCount) {
+                showMsg(msgNums.keyAt(i), msgNums.valueAt(i));
+            }
+        }
+        if (mPendingMsgs.size() > 0) {
+            applyPendingMsgs();
+        }
+    }
+
+    /**
+     * tab是否尚未添加(异步创建中或已归还到缓存池),此时未读消息只记录,添加后再显示
+     */
+    private boolean isTabsDeferred() {
+        return mTabsRecycled || (mTabInflater != null && mTabInflater.isPending());
     }
 
     public void addNewTab(String title) {
-        View tabView = View.inflate(mContext, R.layout.layout_tab, null);
         if (mTitles != null) {
             mTitles.add(title);
         }
+        if (isTabsDeferred()) {
+            // 重新创建包含新tab的批次
+            notifyDataSetChanged();
+            return;
+        }
 
-        CharSequence pageTitle = mTitles == null ? mViewPager.getAdapter().getPageTitle(mTabCount) : mTitles.get(mTabCount);
-        addTab(mTabCount, pageTitle.toString(), tabView);
-        this.mTabCount = mTitles == null ? mViewPager.getAdapter().getCount() : mTitles.size();
+        if (mTabRenderer != null) {
+            this.mTabCount = mTitles == null ? getPagerItemCount() : mTitles.size();
+            resetTitleWidths();
+            setRendererTabs();
+            return;
+        }
+        if (mVirtualized) {
+            this.mTabCount = mTitles == null ? getPagerItemCount() : mTitles.size();
+            resetTitleWidths();
+            updateTabStyles();
+            return;
+        }
+
+        View tabView = obtainTabView();
+
+        CharSequence pageTitle = mTitles == null ? getPagerTitle(mTabCount) : mTitles.get(mTabCount);
+        addTab(mTabCount, pageTitle == null ? null : pageTitle.toString(), tabView);
+        this.mTabCount = mTitles == null ? getPagerItemCount() : mTitles.size();
+        resetTitleWidths();
 
         updateTabStyles();
     }
 
-    /** 创建并添加tab */
-    private void addTab(final int position, String title, View tabView) {
-        TextView tabTitleView = (TextView) tabView.findViewById(R.id.tv_tab_title);
-        if (tabTitleView != null && title != null) {
-            tabTitleView.setText(title);
+    /**
+     * 在index位置插入tab,只添加新的tab,其余tab及未读消息保持不变。
+     * 仅适用于通过titles设置标题的情况,ViewPager的页面需要调用方同步修改
+     */
+    public void insertTab(int index, String title) {
+        checkTitles();
+        if (index < 0 || index > mTitles.size()) {
+            throw new IllegalStateException("Tab index " + index + " out of range [0, " + mTitles.size() + "] !");
         }
+        int[] oldToNew = TabDiff.insert(mTitles.size(), index);
+        mTitles.add(index, title);
+        applyTabChanges(oldToNew);
+    }
 
-        tabView.setOnClickListener(v -> {
-            int childPosition = mTabsContainer.indexOfChild(v);
-            if (childPosition != -1) {
-                if (mViewPager.getCurrentItem() != childPosition) {
-                    if (mSnapOnTabClick) {
-                        mViewPager.setCurrentItem(childPosition, false);
-                    } else {
-                        mViewPager.setCurrentItem(childPosition);
-                    }
+    /**
+     * 移除index位置的tab,其余tab及未读消息保持不变。
+     * 仅适用于通过titles设置标题的情况,ViewPager的页面需要调用方同步修改
+     */
+    public void removeTab(int index) {
+        checkTitles();
+        if (index < 0 || index >= mTitles.size()) {
+            throw new IllegalStateException("Tab index " + index + " out of range [0, " + mTitles.size() + ") !");
+        }
+        int[] oldToNew = TabDiff.remove(mTitles.size(), index);
+        mTitles.remove(index);
+        applyTabChanges(oldToNew);
+    }
 
-                    if (mListener != null) {
-                        mListener.onTabSelect(childPosition);
-                    }
+    /**
+     * 将from位置的tab移动到to位置,未读消息跟随tab移动。
+     * 仅适用于通过titles设置标题的情况,ViewPager的页面需要调用方同步修改
+     */
+    public void moveTab(int from, int to) {
+        checkTitles();
+        int size = mTitles.size();
+        if (from < 0 || from >= size || to < 0 || to >= size) {
+            throw new IllegalStateException("Tab index out of range [0, " + size + ") !");
+        }
+        if (from == to) {
+            return;
+        }
+        mTitles.add(to, mTitles.remove(from));
+        applyTabChanges(TabDiff.move(size, from, to));
+    }
+
+    private void checkTitles() {
+        if (mTitles == null) {
+            throw new IllegalStateException("Titles are provided by the PagerAdapter, call notifyDataSetChanged instead !");
+        }
+    }
+
+    /**
+     * 按新旧位置的对应关系更新tab,只处理有变化的tab并修正位置和未读消息,选中状态由ViewPager决定
+     *
+     * @param oldToNew 下标为旧位置,值为新位置
+     */
+    private void applyTabChanges(int[] oldToNew) {
+        TabDiff.remap(mMsgNums, oldToNew);
+        TabDiff.remap(mPendingMsgs, oldToNew);
+        TabDiff.remap(mInitSetMap, oldToNew);
+        int count = mTitles.size();
+
+        if (isTabsDeferred()) {
+            // tab尚未添加时重新创建,再恢复未读消息
+            SparseIntArray msgNums = mMsgNums.clone();
+            notifyDataSetChanged();
+            for (int i = 0; i < msgNums.size(); i++) {
+                showMsg(msgNums.keyAt(i), msgNums.valueAt(i));
+            }
+            return;
+        }
+        if (mTabRenderer != null || mVirtualized) {
+            // 没有与位置一一对应的子View,重新绑定
+            recycleBoundTabs();
+            mTabsContainer.removeAllViews();
+            this.mTabCount = count;
+            resetTitleWidths();
+            if (mTabRenderer != null) {
+                setRendererTabs();
+                for (int i = 0; i < mMsgNums.size(); i++) {
+                    mTabRenderer.setMsg(mMsgNums.keyAt(i), mMsgNums.valueAt(i));
+                }
+            } else {
+                updateTabStyles();
+            }
+            scrollToCurrentTab();
+            return;
+        }
+
+        View[] tabViews = new View[count];
+        for (int i = oldToNew.length - 1; i >= 0; i--) {
+            View tabView = mTabsContainer.getChildAt(i);
+            int newPos = oldToNew[i];
+            if (newPos == TabDiff.NO_POSITION) {
+                if (mTabPool != null) {
+                    mTabPool.put(R.layout.layout_tab, tabView);
                 } else {
-                    if (mListener != null) {
-                        mListener.onTabReselect(childPosition);
-                    }
+                    mTabsContainer.removeViewAt(i);
                 }
+                continue;
             }
-        });
+            tabViews[newPos] = tabView;
+            TabViewHolder.get(tabView).position = newPos;
+        }
+
+        for (int i = 0; i < count; i++) {
+            View tabView = tabViews[i];
+            if (tabView == null) {
+                addTab(i, mTitles.get(i), obtainTabView());
+            } else if (mTabsContainer.getChildAt(i) != tabView) {
+                mTabsContainer.removeView(tabView);
+                mTabsContainer.addView(tabView, i);
+            }
+        }
+        this.mTabCount = count;
+        resetTitleWidths();
+        updateTabStyles();
+        scrollToCurrentTab();
+        invalidate();
+    }
+
+    /** 创建并添加tab */
+    private void addTab(final int position, String title, View tabView) {
+        TextView tabTitleView = TabViewHolder.create(tabView, position).titleView;
+        if (tabTitleView != null && title != null) {
+            tabTitleView.setText(title);
+        }
+
+        tabView.setOnClickListener(mTabClickListener);
 
         //每一个Tab的布局参数
         LinearLayout.LayoutParams itemTabLp = mTabSpaceEqual ?
@@ -298,37 +773,287 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
         mTabsContainer.addView(tabView, position, itemTabLp);
     }
 
+    private final OnClickListener mTabClickListener = this::onTabClick;
+
+    private void onTabClick(View v) {
+        performTabClick(TabViewHolder.get(v).position);
+    }
+
+    private void performTabClick(int position) {
+        if (getPagerCurrentItem() != position) {
+            if (mSnapOnTabClick) {
+                setPagerCurrentItem(position, false);
+            } else {
+                setPagerCurrentItem(position);
+            }
+
+            if (mListener != null) {
+                mListener.onTabSelect(position);
+            }
+        } else {
+            if (mListener != null) {
+                mListener.onTabReselect(position);
+            }
+        }
+    }
+
+    /** canvas绘制模式下将标题交给renderer */
+    private void setRendererTabs() {
+        CharSequence[] titles = new CharSequence[mTabCount];
+        for (int i = 0; i < mTabCount; i++) {
+            CharSequence pageTitle = mTitles == null ? getPagerTitle(i) : mTitles.get(i);
+            titles[i] = pageTitle == null ? "" : pageTitle;
+        }
+        mTabRenderer.setDefaultMsgMargin(4, 2);
+        mTabRenderer.setTabs(titles, null, null);
+        updateTabStyles();
+        mStyledTab = getPagerCurrentItem();
+    }
+
+    /**
+     * canvas绘制模式下根据当前尺寸计算tab宽度表,容器宽度撑开到所有tab的总宽度以便滚动
+     */
+    private void layoutCanvasTabs() {
+        mTabRenderer.layoutTabs(mTabsContainer.getWidth(), mTabSpaceEqual, mTabWidth, mTabPadding);
+        mTabRenderer.setBounds(mTabsContainer.getLeft(), mTabsContainer.getTop(), mTabsContainer.getBottom());
+        int minWidth = mTabSpaceEqual && mTabWidth <= 0 ? 0 : mTabRenderer.getOffsets().getTotalWidth();
+        if (mTabsContainer.getMinimumWidth() != minWidth) {
+            mTabsContainer.setMinimumWidth(minWidth);
+        }
+        int minHeight = mTabRenderer.getContentHeight();
+        if (mTabsContainer.getMinimumHeight() != minHeight) {
+            mTabsContainer.setMinimumHeight(minHeight);
+        }
+    }
+
     private void updateTabStyles() {
+        if (mTabRenderer != null) {
+            mTabRenderer.setTextStyle(mTextSize, mSelectedTextSize, mTextSelectColor, mTextUnselectColor, mTextBold, mTextAllCaps);
+            mTabRenderer.setIconStyle(false, Gravity.LEFT, 0, 0, 0);
+            layoutCanvasTabs();
+            requestLayout();
+            invalidate();
+            return;
+        }
+
+        mStyledTab = mCurrentTab;
+        if (mVirtualized) {
+            rebuildTabOffsets();
+            for (int i = 0; i < mBoundTabs.size(); i++) {
+                View v = mBoundTabs.valueAt(i);
+                v.getLayoutParams().width = mTabOffsets.getWidth(mBoundTabs.keyAt(i));
+                updateTabStyle(v, mBoundTabs.keyAt(i));
+            }
+            mTabsContainer.requestLayout();
+            bindVisibleTabs();
+            return;
+        }
+
         for (int i = 0; i < mTabCount; i++) {
-            View v = mTabsContainer.getChildAt(i);
+            updateTabStyle(mTabsContainer.getChildAt(i), i);
+        }
+    }
+
+    private void updateTabStyle(View v, int i) {
 //            v.setPadding((int) mTabPadding, v.getPaddingTop(), (int) mTabPadding, v.getPaddingBottom());
-            TextView tabTitleView = (TextView) v.findViewById(R.id.tv_tab_title);
-            if (tabTitleView != null) {
-                tabTitleView.setTextColor(i == mCurrentTab ? mTextSelectColor : mTextUnselectColor);
-                tabTitleView.setTextSize(TypedValue.COMPLEX_UNIT_PX, i == mCurrentTab ? mSelectedTextSize : mTextSize);
-                tabTitleView.setPadding((int) mTabPadding, 0, (int) mTabPadding, 0);
-                if (mTextAllCaps) {
-                    tabTitleView.setText(tabTitleView.getText().toString().toUpperCase());
+        TextView tabTitleView = TabViewHolder.get(v).titleView;
+        if (tabTitleView != null) {
+            tabTitleView.setTextColor(i == mStyledTab ? mTextSelectColor : mTextUnselectColor);
+            tabTitleView.setTextSize(TypedValue.COMPLEX_UNIT_PX, i == mStyledTab ? mSelectedTextSize : mTextSize);
+            tabTitleView.setPadding((int) mTabPadding, 0, (int) mTabPadding, 0);
+            if (mTextAllCaps) {
+                String upperText = tabTitleView.getText().toString().toUpperCase();
+                // 已经是大写时不重新设置,避免丢弃预先计算的文字布局
+                if (!TextUtils.equals(upperText, tabTitleView.getText())) {
+                    tabTitleView.setText(upperText);
                 }
+            }
 
-                if (mTextBold == TEXT_BOLD_BOTH) {
-                    tabTitleView.getPaint().setFakeBoldText(true);
-                } else if (mTextBold == TEXT_BOLD_NONE) {
-                    tabTitleView.getPaint().setFakeBoldText(false);
-                } else if (mTextBold == TEXT_BOLD_WHEN_SELECT) {
-                    tabTitleView.getPaint().setFakeBoldText(i == mCurrentTab);
-                }
-                tabTitleView.invalidate();
+            if (mTextBold == TEXT_BOLD_BOTH) {
+                tabTitleView.getPaint().setFakeBoldText(true);
+            } else if (mTextBold == TEXT_BOLD_NONE) {
+                tabTitleView.getPaint().setFakeBoldText(false);
+            } else if (mTextBold == TEXT_BOLD_WHEN_SELECT) {
+                tabTitleView.getPaint().setFakeBoldText(i == mStyledTab);
+            }
+            tabTitleView.invalidate();
+        }
+    }
+
+    /** 获取position位置显示的标题 */
+    private String getDisplayTitle(int position) {
+        CharSequence pageTitle = mTitles == null ? getPagerTitle(position) : mTitles.get(position);
+        String title = pageTitle == null ? "" : pageTitle.toString();
+        return mTextAllCaps ? title.toUpperCase() : title;
+    }
+
+    /**
+     * 获取position位置标题的宽度,结果按字号缓存,滑动过程中不会重复测量
+     *
+     * @param selected true使用选中字号, false使用未选中字号
+     */
+    private float getTitleWidth(int position, boolean selected) {
+        TitleWidthCache cache = selected ? mSelectedTitleWidths : mTitleWidths;
+        mTextPaint.setTextSize(selected ? mSelectedTextSize : mTextSize);
+        float width = cache.get(position, mTextPaint);
+        if (width < 0) {
+            width = mTextPaint.measureText(getDisplayTitle(position));
+            cache.put(position, width);
+        }
+        return width;
+    }
+
+    private void resetTitleWidths() {
+        mTitleWidths.reset(mTabCount);
+        mSelectedTitleWidths.reset(mTabCount);
+    }
+
+    /** 获取position位置tab的holder,虚拟化模式下未绑定的tab返回null */
+    private TabViewHolder getTabHolder(int position) {
+        return TabViewHolder.get(getTabView(position));
+    }
+
+    /** 获取position位置的tab,虚拟化模式下未绑定的tab返回null */
+    private View getTabView(int position) {
+        return mVirtualized ? mBoundTabs.get(position) : mTabsContainer.getChildAt(position);
+    }
+
+    /**
+     * @return 当前模式下的tab宽度表,普通模式下tab变化后还未重新布局时返回null
+     */
+    private TabOffsets getTabOffsets() {
+        if (mTabRenderer != null) {
+            return mTabRenderer.getOffsets();
+        }
+        return mVirtualized ? mTabOffsets : mTabEdges.getOffsets();
+    }
+
+    private int getTabLeft(int position) {
+        TabOffsets offsets = getTabOffsets();
+        return offsets != null ? offsets.getLeft(position) : mTabsContainer.getChildAt(position).getLeft();
+    }
+
+    private int getTabRight(int position) {
+        TabOffsets offsets = getTabOffsets();
+        return offsets != null ? offsets.getRight(position) : mTabsContainer.getChildAt(position).getRight();
+    }
+
+    /**
+     * 虚拟化模式下根据标题宽度计算宽度表,tl_tab_space_equal在该模式下无效
+     */
+    private void rebuildTabOffsets() {
+        mTabOffsets.setCount(mTabCount);
+        for (int i = 0; i < mTabCount; i++) {
+            int width = mTabWidth > 0 ? (int) mTabWidth :
+                    (int) Math.ceil(Math.max(getTitleWidth(i, false), getTitleWidth(i, true)) + mTabPadding * 2);
+            mTabOffsets.setWidth(i, width);
+        }
+        mTabOffsets.rebuild();
+        mTabsContainer.requestLayout();
+    }
+
+    /**
+     * 绑定可见范围(左右各多出VIRTUAL_EXTRA_TABS个)内的tab,回收范围外的tab
+     */
+    private void bindVisibleTabs() {
+        if (!mVirtualized || mTabRenderer != null || mTabCount <= 0) {
+            return;
+        }
+
+        int viewportLeft = getScrollX() - mTabsContainer.getLeft();
+        int first = Math.max(0, mTabOffsets.indexAt(viewportLeft) - VIRTUAL_EXTRA_TABS);
+        int last = Math.min(mTabCount - 1, mTabOffsets.indexAt(viewportLeft + getWidth()) + VIRTUAL_EXTRA_TABS);
+
+        for (int i = mBoundTabs.size() - 1; i >= 0; i--) {
+            int position = mBoundTabs.keyAt(i);
+            if (position < first || position > last) {
+                View tabView = mBoundTabs.valueAt(i);
+                mBoundTabs.removeAt(i);
+                mTabsContainer.removeView(tabView);
+                mRecycledTabs.push(tabView);
+            }
+        }
+
+        for (int position = first; position <= last; position++) {
+            if (mBoundTabs.get(position) == null) {
+                bindTab(position);
+            }
+        }
+    }
+
+    private void bindTab(int position) {
+        View tabView = mRecycledTabs.poll();
+        TabViewHolder holder;
+        if (tabView == null) {
+            tabView = obtainTabView();
+            tabView.setOnClickListener(mTabClickListener);
+            holder = TabViewHolder.create(tabView, position);
+        } else {
+            holder = TabViewHolder.get(tabView);
+            holder.position = position;
+        }
+
+        TextView tabTitleView = holder.titleView;
+        if (tabTitleView != null) {
+            tabTitleView.setText(getDisplayTitle(position));
+        }
+        updateTabStyle(tabView, position);
+
+        TabStripLayout.LayoutParams lp = new TabStripLayout.LayoutParams(mTabOffsets.getWidth(position), LayoutParams.MATCH_PARENT);
+        lp.position = position;
+        mTabsContainer.addView(tabView, lp);
+        mBoundTabs.put(position, tabView);
+
+        MsgView tipView = holder.msgView;
+        if (tipView != null) {
+            int index = mMsgNums.indexOfKey(position);
+            if (index >= 0) {
+                UnreadMsgUtils.show(tipView, mMsgNums.valueAt(index));
+                setMsgMargin(position, 4, 2);
+            } else {
+                tipView.setVisibility(View.GONE);
             }
         }
     }
 
+    /** 将已绑定的tab放回回收池 */
+    private void recycleBoundTabs() {
+        for (int i = 0; i < mBoundTabs.size(); i++) {
+            mRecycledTabs.push(mBoundTabs.valueAt(i));
+        }
+        mBoundTabs.clear();
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        if (mTabRenderer != null) {
+            layoutCanvasTabs();
+        } else if (!mVirtualized) {
+            mTabEdges.rebuild();
+        }
+        bindVisibleTabs();
+        mDecorationCache.invalidate();
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        bindVisibleTabs();
+    }
+
     @Override
     public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
         // position:当前View的位置
         // mCurrentPositionOffset:当前View的偏移量比例.[0,1)
         this.mCurrentTab = position;
         this.mCurrentPositionOffset = positionOffset;
+        if (mCoalesceScrollUpdates) {
+            mPendingScroll = true;
+            mPendingRedraw = true;
+            scheduleFrame();
+            return;
+        }
         scrollToCurrentTab();
         invalidate();
     }
@@ -340,6 +1065,12 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
 
     @Override
     public void onPageScrollStateChanged(int state) {
+        // 统计拖动和惯性滑动过程中的掉帧
+        if (state == ViewPager.SCROLL_STATE_IDLE) {
+            mMetrics.stopFrameMonitor();
+        } else {
+            mMetrics.startFrameMonitor();
+        }
     }
 
     /**
@@ -350,9 +1081,9 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
             return;
         }
 
-        int offset = (int) (mCurrentPositionOffset * mTabsContainer.getChildAt(mCurrentTab).getWidth());
+        int offset = (int) (mCurrentPositionOffset * (getTabRight(mCurrentTab) - getTabLeft(mCurrentTab)));
         //当前Tab的left+当前Tab的Width乘以positionOffset
-        int newScrollX = mTabsContainer.getChildAt(mCurrentTab).getLeft() + offset;
+        int newScrollX = getTabLeft(mCurrentTab) + offset;
 
         if (mCurrentTab > 0 || offset > 0) {
             //HorizontalScrollView移动到当前tab,并居中
@@ -371,18 +1102,42 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
     }
 
     private void updateTabSelection(int position) {
-        for (int i = 0; i < mTabCount; ++i) {
-            View tabView = mTabsContainer.getChildAt(i);
-            final boolean isSelect = i == position;
-            TextView tabTitleView = (TextView) tabView.findViewById(R.id.tv_tab_title);
+        int lastTab = mStyledTab;
+        if (lastTab == position) {
+            return;
+        }
+        mStyledTab = position;
+
+        if (mTabRenderer != null) {
+            mTabRenderer.notifySelectionChanged(lastTab, position);
+            invalidate();
+            return;
+        }
 
-            if (tabTitleView != null) {
-                tabTitleView.setTextColor(isSelect ? mTextSelectColor : mTextUnselectColor);
+        if (lastTab >= 0 && lastTab < mTabCount) {
+            updateTabSelection(lastTab, false);
+        }
+        updateTabSelection(position, true);
+    }
+
+    /**
+     * 更新单个tab的选中样式,虚拟化模式下未绑定的tab在绑定时再设置样式
+     */
+    private void updateTabSelection(int position, boolean isSelect) {
+        TabViewHolder holder = getTabHolder(position);
+        if (holder == null) {
+            return;
+        }
+        TextView tabTitleView = holder.titleView;
+
+        if (tabTitleView != null) {
+            tabTitleView.setTextColor(isSelect ? mTextSelectColor : mTextUnselectColor);
+            if (mSelectedTextSize != mTextSize) {
                 tabTitleView.setTextSize(TypedValue.COMPLEX_UNIT_PX, isSelect ? mSelectedTextSize : mTextSize);
-                if (mTextBold == TEXT_BOLD_WHEN_SELECT) {
-                    tabTitleView.getPaint().setFakeBoldText(isSelect);
-                    tabTitleView.invalidate();
-                }
+            }
+            if (mTextBold == TEXT_BOLD_WHEN_SELECT) {
+                tabTitleView.getPaint().setFakeBoldText(isSelect);
+                tabTitleView.invalidate();
             }
         }
     }
@@ -390,31 +1145,25 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
     private float margin;
 
     private void calcIndicatorRect() {
-        View currentTabView = mTabsContainer.getChildAt(this.mCurrentTab);
-        float left = currentTabView.getLeft();
-        float right = currentTabView.getRight();
+        float left = getTabLeft(this.mCurrentTab);
+        float right = getTabRight(this.mCurrentTab);
 
         //for mIndicatorWidthEqualTitle
         if (mIndicatorStyle == STYLE_NORMAL && mIndicatorWidthEqualTitle) {
-            TextView tabTitleView = (TextView) currentTabView.findViewById(R.id.tv_tab_title);
-            mTextPaint.setTextSize(mSelectedTextSize);
-            float textWidth = mTextPaint.measureText(tabTitleView.getText().toString());
+            float textWidth = getTitleWidth(this.mCurrentTab, true);
             margin = (right - left - textWidth) / 2;
         }
 
         if (this.mCurrentTab < mTabCount - 1) {
-            View nextTabView = mTabsContainer.getChildAt(this.mCurrentTab + 1);
-            float nextTabLeft = nextTabView.getLeft();
-            float nextTabRight = nextTabView.getRight();
+            float nextTabLeft = getTabLeft(this.mCurrentTab + 1);
+            float nextTabRight = getTabRight(this.mCurrentTab + 1);
 
             left = left + mCurrentPositionOffset * (nextTabLeft - left);
             right = right + mCurrentPositionOffset * (nextTabRight - right);
 
             // for mIndicatorWidthEqualTitle
             if (mIndicatorStyle == STYLE_NORMAL && mIndicatorWidthEqualTitle) {
-                TextView nexTabTitleView = (TextView) nextTabView.findViewById(R.id.tv_tab_title);
-                mTextPaint.setTextSize(mSelectedTextSize);
-                float nextTextWidth = mTextPaint.measureText(nexTabTitleView.getText().toString());
+                float nextTextWidth = getTitleWidth(this.mCurrentTab + 1, true);
                 float nextMargin = (nextTabRight - nextTabLeft - nextTextWidth) / 2;
                 margin = margin + mCurrentPositionOffset * (nextMargin - margin);
             }
@@ -435,11 +1184,13 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
 
         } else {
             //indicatorWidth大于0时,圆角矩形以及三角形
-            float indicatorLeft = currentTabView.getLeft() + (currentTabView.getWidth() - mIndicatorWidth) / 2f;
+            int currentTabLeft = getTabLeft(this.mCurrentTab);
+            int currentTabWidth = getTabRight(this.mCurrentTab) - currentTabLeft;
+            float indicatorLeft = currentTabLeft + (currentTabWidth - mIndicatorWidth) / 2f;
 
             if (this.mCurrentTab < mTabCount - 1) {
-                View nextTab = mTabsContainer.getChildAt(this.mCurrentTab + 1);
-                indicatorLeft = indicatorLeft + mCurrentPositionOffset * (currentTabView.getWidth() / 2f + nextTab.getWidth() / 2f);
+                int nextTabWidth = getTabRight(this.mCurrentTab + 1) - getTabLeft(this.mCurrentTab + 1);
+                indicatorLeft = indicatorLeft + mCurrentPositionOffset * (currentTabWidth / 2f + nextTabWidth / 2f);
             }
 
             mIndicatorRect.left = (int) indicatorLeft;
@@ -447,35 +1198,77 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
         }
     }
 
-    @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
+    /**
+     * 分割线和底线在内容坐标系中不随滑动变化,只在布局或样式变化时重新录制
+     */
+    private final DecorationCache mDecorationCache = new DecorationCache(this::drawDecorations);
 
-        if (isInEditMode() || mTabCount <= 0) {
-            return;
-        }
+    /**
+     * 可见范围内的第一个和最后一个tab
+     */
+    private final int[] mVisibleTabs = new int[2];
 
+    private void drawDecorations(Canvas canvas) {
         int height = getHeight();
         int paddingLeft = getPaddingLeft();
+        int firstDivider = 0;
+        int lastDivider = mTabCount - 2;
+        int underlineLeft = paddingLeft;
+        int underlineRight = mTabsContainer.getWidth() + paddingLeft;
+        TabOffsets offsets = getTabOffsets();
+        if (!mDecorationCache.isRecording() && offsets != null) {
+            // 直接绘制时只绘制可见范围内的分割线和底线
+            int viewportLeft = getScrollX() - mTabsContainer.getLeft();
+            int viewportRight = viewportLeft + getWidth();
+            if (offsets.findRange(viewportLeft, viewportRight, mVisibleTabs)) {
+                firstDivider = Math.max(0, mVisibleTabs[0] - 1);
+                lastDivider = Math.min(lastDivider, mVisibleTabs[1]);
+            } else {
+                lastDivider = -1;
+            }
+            underlineLeft = Math.max(underlineLeft, getScrollX());
+            underlineRight = Math.min(underlineRight, getScrollX() + getWidth());
+        }
+
         // draw divider
         if (mDividerWidth > 0) {
             mDividerPaint.setStrokeWidth(mDividerWidth);
             mDividerPaint.setColor(mDividerColor);
-            for (int i = 0; i < mTabCount - 1; i++) {
-                View tab = mTabsContainer.getChildAt(i);
-                canvas.drawLine(paddingLeft + tab.getRight(), mDividerPadding, paddingLeft + tab.getRight(), height - mDividerPadding, mDividerPaint);
+            for (int i = firstDivider; i <= lastDivider; i++) {
+                int tabRight = getTabRight(i);
+                canvas.drawLine(paddingLeft + tabRight, mDividerPadding, paddingLeft + tabRight, height - mDividerPadding, mDividerPaint);
             }
         }
 
         // draw underline
-        if (mUnderlineHeight > 0) {
+        if (mUnderlineHeight > 0 && underlineLeft < underlineRight) {
             mRectPaint.setColor(mUnderlineColor);
             if (mUnderlineGravity == Gravity.BOTTOM) {
-                canvas.drawRect(paddingLeft, height - mUnderlineHeight, mTabsContainer.getWidth() + paddingLeft, height, mRectPaint);
+                canvas.drawRect(underlineLeft, height - mUnderlineHeight, underlineRight, height, mRectPaint);
             } else {
-                canvas.drawRect(paddingLeft, 0, mTabsContainer.getWidth() + paddingLeft, mUnderlineHeight, mRectPaint);
+                canvas.drawRect(underlineLeft, 0, underlineRight, mUnderlineHeight, mRectPaint);
             }
         }
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        long start = mMetrics.beginSection(TabMetricsTracker.SECTION_DRAW);
+        super.draw(canvas);
+        mMetrics.endDraw(start);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        if (isInEditMode() || mTabCount <= 0 || isTitlesPending()) {
+            return;
+        }
+
+        int height = getHeight();
+        int paddingLeft = getPaddingLeft();
+        mDecorationCache.draw(canvas, Math.max(getWidth(), paddingLeft + mTabsContainer.getWidth() + getPaddingRight()), height);
 
         //draw indicator line
         calcIndicatorRect();
@@ -532,63 +1325,102 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
                 mIndicatorDrawable.draw(canvas);
             }
         }
+
+        if (mTabRenderer != null) {
+            // 只绘制可见范围内的tab
+            TabOffsets offsets = mTabRenderer.getOffsets();
+            int viewportLeft = getScrollX() - mTabsContainer.getLeft();
+            mTabRenderer.draw(canvas, offsets.indexAt(viewportLeft), offsets.indexAt(viewportLeft + getWidth()));
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent ev) {
+        if (mTabRenderer != null) {
+            mTabRenderer.onTouchEvent(ev);
+        }
+        return super.onTouchEvent(ev);
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        if (mTabRenderer != null && mTabRenderer.dispatchHoverEvent(event)) {
+            return true;
+        }
+        return super.dispatchHoverEvent(event);
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        if (mTabRenderer != null && mTabRenderer.dispatchKeyEvent(event)) {
+            return true;
+        }
+        return super.dispatchKeyEvent(event);
+    }
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        if (mTabRenderer != null) {
+            mTabRenderer.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        }
     }
 
     /* -- setter and getter -- */
     public void setCurrentTab(int currentTab) {
         this.mCurrentTab = currentTab;
-        mViewPager.setCurrentItem(currentTab);
+        setPagerCurrentItem(currentTab);
 
     }
 
     public void setCurrentTab(int currentTab, boolean smoothScroll) {
         this.mCurrentTab = currentTab;
-        mViewPager.setCurrentItem(currentTab, smoothScroll);
+        setPagerCurrentItem(currentTab, smoothScroll);
     }
 
     public void setIndicatorStyle(int indicatorStyle) {
         this.mIndicatorStyle = indicatorStyle;
-        invalidate();
+        requestRedraw();
     }
 
     public void setTabPadding(float tabPadding) {
         this.mTabPadding = DimensionUtils.dp2px(getContext(), tabPadding);
-        updateTabStyles();
+        requestStyleUpdate();
     }
 
     public void setTabSpaceEqual(boolean tabSpaceEqual) {
         this.mTabSpaceEqual = tabSpaceEqual;
-        updateTabStyles();
+        requestStyleUpdate();
     }
 
     public void setTabWidth(float tabWidth) {
         this.mTabWidth = DimensionUtils.dp2px(getContext(), tabWidth);
-        updateTabStyles();
+        requestStyleUpdate();
     }
 
     public void setIndicatorColor(int indicatorColor) {
         this.mIndicatorColor = indicatorColor;
-        invalidate();
+        requestRedraw();
     }
 
     public void setIndicatorHeight(float indicatorHeight) {
         this.mIndicatorHeight = DimensionUtils.dp2px(getContext(), indicatorHeight);
-        invalidate();
+        requestRedraw();
     }
 
     public void setIndicatorWidth(float indicatorWidth) {
         this.mIndicatorWidth = DimensionUtils.dp2px(getContext(), indicatorWidth);
-        invalidate();
+        requestRedraw();
     }
 
     public void setIndicatorCornerRadius(float indicatorCornerRadius) {
         this.mIndicatorCornerRadius = DimensionUtils.dp2px(getContext(), indicatorCornerRadius);
-        invalidate();
+        requestRedraw();
     }
 
     public void setIndicatorGravity(int indicatorGravity) {
         this.mIndicatorGravity = indicatorGravity;
-        invalidate();
+        requestRedraw();
     }
 
     public void setIndicatorMargin(float indicatorMarginLeft, float indicatorMarginTop,
@@ -597,78 +1429,311 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
         this.mIndicatorMarginTop = DimensionUtils.dp2px(getContext(), indicatorMarginTop);
         this.mIndicatorMarginRight = DimensionUtils.dp2px(getContext(), indicatorMarginRight);
         this.mIndicatorMarginBottom = DimensionUtils.dp2px(getContext(), indicatorMarginBottom);
-        invalidate();
+        requestRedraw();
     }
 
     public void setIndicatorWidthEqualTitle(boolean indicatorWidthEqualTitle) {
         this.mIndicatorWidthEqualTitle = indicatorWidthEqualTitle;
-        invalidate();
+        requestRedraw();
     }
 
     public void setUnderlineColor(int underlineColor) {
         this.mUnderlineColor = underlineColor;
-        invalidate();
+        mDecorationCache.invalidate();
+        requestRedraw();
     }
 
     public void setUnderlineHeight(float underlineHeight) {
         this.mUnderlineHeight = DimensionUtils.dp2px(getContext(), underlineHeight);
-        invalidate();
+        mDecorationCache.invalidate();
+        requestRedraw();
     }
 
     public void setUnderlineGravity(int underlineGravity) {
         this.mUnderlineGravity = underlineGravity;
-        invalidate();
+        mDecorationCache.invalidate();
+        requestRedraw();
     }
 
     public void setDividerColor(int dividerColor) {
         this.mDividerColor = dividerColor;
-        invalidate();
+        mDecorationCache.invalidate();
+        requestRedraw();
     }
 
     public void setDividerWidth(float dividerWidth) {
         this.mDividerWidth = DimensionUtils.dp2px(getContext(), dividerWidth);
-        invalidate();
+        mDecorationCache.invalidate();
+        requestRedraw();
     }
 
     public void setDividerPadding(float dividerPadding) {
         this.mDividerPadding = DimensionUtils.dp2px(getContext(), dividerPadding);
-        invalidate();
+        mDecorationCache.invalidate();
+        requestRedraw();
     }
 
     public void setTextsize(float textsize) {
         this.mTextSize = DimensionUtils.sp2px(getContext(), textsize);
-        updateTabStyles();
+        requestStyleUpdate();
     }
 
     public void setTextSelectedSize(float textSize) {
         this.mSelectedTextSize = DimensionUtils.sp2px(getContext(),textSize);
-        updateTabStyles();
+        requestStyleUpdate();
     }
 
     public void setTextSelectColor(int textSelectColor) {
         this.mTextSelectColor = textSelectColor;
-        updateTabStyles();
+        requestStyleUpdate();
     }
 
     public void setTextUnselectColor(int textUnselectColor) {
         this.mTextUnselectColor = textUnselectColor;
-        updateTabStyles();
+        requestStyleUpdate();
     }
 
     public void setTextBold(int textBold) {
         this.mTextBold = textBold;
-        updateTabStyles();
+        requestStyleUpdate();
     }
 
     public void setTextAllCaps(boolean textAllCaps) {
         this.mTextAllCaps = textAllCaps;
-        updateTabStyles();
+        mTitleWidths.invalidate();
+        mSelectedTitleWidths.invalidate();
+        requestStyleUpdate();
     }
 
     public void setSnapOnTabClick(boolean snapOnTabClick) {
         mSnapOnTabClick = snapOnTabClick;
     }
 
+    /**
+     * 设置离屏页面的保留策略,仅对setViewPager(vp, titles, fa, fragments)创建的适配器生效。
+     * 默认保留所有页面的视图,之前保留的页面在下一次页面离开缓存范围时按新的数量释放
+     *
+     * @param maxRetained 离开ViewPager缓存范围后最多保留视图的页面数,超出时释放最久未访问的页面,小于0时全部保留
+     * @param keepState   释放页面时是否保留Fragment状态,true只销毁视图,再次显示时恢复状态;false移除Fragment,再次显示时重新创建
+     */
+    public void setOffscreenPageRetention(int maxRetained, boolean keepState) {
+        this.mMaxRetainedPages = maxRetained;
+        this.mKeepRetainedState = keepState;
+        if (mViewPager != null && mViewPager.getAdapter() instanceof InnerPagerAdapter) {
+            ((InnerPagerAdapter) mViewPager.getAdapter()).setRetention(maxRetained, keepState);
+        }
+    }
+
+    /**
+     * 开始批量修改,在与之配对的endBatchEdit之前,setter只记录修改,
+     * 结束后在下一帧统一更新一次样式并重绘。支持嵌套调用
+     */
+    public void beginBatchEdit() {
+        mBatchEditDepth++;
+    }
+
+    /**
+     * 结束批量修改
+     */
+    public void endBatchEdit() {
+        if (mBatchEditDepth <= 0) {
+            throw new IllegalStateException("endBatchEdit() called without beginBatchEdit() !");
+        }
+        mBatchEditDepth--;
+        if (mBatchEditDepth == 0 && (mPendingStyleUpdate || mPendingRedraw)) {
+            scheduleFrame();
+        }
+    }
+
+    /**
+     * 设置是否合并ViewPager的滚动回调,开启后每帧最多滚动和重绘一次
+     */
+    public void setCoalesceScrollUpdates(boolean coalesceScrollUpdates) {
+        this.mCoalesceScrollUpdates = coalesceScrollUpdates;
+    }
+
+    public boolean isCoalesceScrollUpdates() {
+        return mCoalesceScrollUpdates;
+    }
+
+    private void requestStyleUpdate() {
+        if (mBatchEditDepth > 0) {
+            mPendingStyleUpdate = true;
+            mPendingRedraw = true;
+        } else {
+            updateTabStyles();
+        }
+    }
+
+    private void requestRedraw() {
+        if (mBatchEditDepth > 0) {
+            mPendingRedraw = true;
+        } else {
+            invalidate();
+        }
+    }
+
+    private void scheduleFrame() {
+        if (!mFrameScheduled) {
+            mFrameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+    }
+
+    private void doFrame(long frameTimeNanos) {
+        mFrameScheduled = false;
+        if (mBatchEditDepth > 0) {
+            // 批量修改未结束,等待endBatchEdit
+            return;
+        }
+        if (mPendingStyleUpdate) {
+            mPendingStyleUpdate = false;
+            updateTabStyles();
+        }
+        if (mPendingScroll) {
+            mPendingScroll = false;
+            scrollToCurrentTab();
+        }
+        if (mPendingRedraw) {
+            mPendingRedraw = false;
+            invalidate();
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mTabsRecycled) {
+            mTabsRecycled = false;
+            View[] tabViews = new View[mTitles == null ? getPagerItemCount() : mTitles.size()];
+            for (int i = 0; i < tabViews.length; i++) {
+                tabViews[i] = obtainTabView();
+            }
+            attachTabs(tabViews);
+        } else if (mVirtualized && mTabRenderer == null && mBoundTabs.size() == 0 && mTabCount > 0) {
+            requestLayout();
+        }
+        if (mPendingStyleUpdate || mPendingScroll || mPendingRedraw) {
+            scheduleFrame();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mDecorationCache.release();
+        mMetrics.stopFrameMonitor();
+        mMetrics.cancelTabSwitch();
+        if (mFrameScheduled) {
+            mFrameScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+        }
+        if (mTabPool != null && mTabRenderer == null && !isTabsDeferred()) {
+            if (mVirtualized) {
+                // 重新进入窗口后在onLayout中重新绑定
+                recycleBoundTabs();
+                mTabsContainer.removeAllViews();
+                recycleTabs();
+            } else if (mTabCount > 0) {
+                recycleTabs();
+                this.mTabCount = 0;
+                mTabsRecycled = true;
+            }
+        }
+    }
+
+    /**
+     * 设置虚拟化模式,开启后只有可见范围内的tab会被创建,适用于tab数量非常多的场景。
+     * 该模式下tl_tab_space_equal无效,getTitleView和getMsgView对未显示的tab返回null
+     */
+    public void setVirtualized(boolean virtualized) {
+        if (mVirtualized == virtualized) {
+            return;
+        }
+        recycleBoundTabs();
+        mRecycledTabs.clear();
+        mTabsContainer.removeAllViews();
+        this.mVirtualized = virtualized;
+        mTabsContainer.setVirtualOffsets(virtualized && mTabRenderer == null ? mTabOffsets : null);
+        if (hasPager()) {
+            notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * 设置canvas绘制模式,开启后不再为每个tab创建子View,标题和未读消息直接绘制,
+     * 此时getTitleView和getMsgView返回null。该模式优先于虚拟化模式
+     */
+    public void setCanvasRendering(boolean canvasRendering) {
+        if (canvasRendering == (mTabRenderer != null)) {
+            return;
+        }
+        recycleBoundTabs();
+        mRecycledTabs.clear();
+        mTabsContainer.removeAllViews();
+        if (canvasRendering) {
+            mTabRenderer = new TabCanvasRenderer(this, mRendererCallback);
+            mTabsContainer.setVirtualOffsets(null);
+        } else {
+            mTabRenderer.release();
+            mTabRenderer = null;
+            mTabsContainer.setMinimumWidth(0);
+            mTabsContainer.setMinimumHeight(0);
+            mTabsContainer.setVirtualOffsets(mVirtualized ? mTabOffsets : null);
+        }
+        if (hasPager()) {
+            notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * 设置性能数据回调,设置后统计tab切换、创建和绘制的耗时以及动画过程中的掉帧,
+     * 同时为各阶段添加Trace片段。为null时不做统计
+     */
+    public void setMetricsListener(TabLayoutMetricsListener listener) {
+        mMetrics.setListener(listener);
+    }
+
+    public TabLayoutMetricsListener getMetricsListener() {
+        return mMetrics.getListener();
+    }
+
+    /**
+     * 设置计算标题文字布局的线程池,设置后创建tab时标题的排版在该线程池中完成,完成前tab不显示,首帧不在主线程排版。
+     * 在下一次notifyDataSetChanged时生效,canvas绘制和虚拟化模式下无效
+     *
+     * @param executor 为null时在主线程排版
+     */
+    public void setTextPrecomputeExecutor(Executor executor) {
+        this.mTextPrecomputeExecutor = executor;
+    }
+
+    /**
+     * 设置异步创建tab,开启后tab在后台线程创建,完成前只显示背景,完成后一次性添加。
+     * 在下一次notifyDataSetChanged时生效,canvas绘制和虚拟化模式下无效
+     */
+    public void setAsyncInflate(boolean asyncInflate) {
+        this.mAsyncInflate = asyncInflate;
+    }
+
+    public boolean isAsyncInflate() {
+        return mAsyncInflate;
+    }
+
+    /**
+     * 设置共享的tab缓存池,创建tab时优先从池中获取,离开窗口或刷新数据时归还。
+     * 非虚拟化模式下离开窗口期间getTabCount返回0
+     *
+     * @param pool 为null时不使用缓存池
+     */
+    public void setRecycledTabPool(RecycledTabPool pool) {
+        this.mTabPool = pool;
+    }
+
+    public RecycledTabPool getRecycledTabPool() {
+        return mTabPool;
+    }
+
 
     public int getTabCount() {
         return mTabCount;
@@ -766,10 +1831,17 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
         return mTextAllCaps;
     }
 
+    public boolean isVirtualized() {
+        return mVirtualized;
+    }
+
+    public boolean isCanvasRendering() {
+        return mTabRenderer != null;
+    }
+
     public TextView getTitleView(int tab) {
-        View tabView = mTabsContainer.getChildAt(tab);
-        TextView tv_tab_title = (TextView) tabView.findViewById(R.id.tv_tab_title);
-        return tv_tab_title;
+        TabViewHolder holder = getTabHolder(tab);
+        return holder == null ? null : holder.titleView;
     }
 
     //setter and getter
@@ -785,12 +1857,25 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
      * @param num      num小于等于0显示红点,num大于0显示数字
      */
     public void showMsg(int position, int num) {
+        if (isTabsDeferred()) {
+            mMsgNums.put(position, num);
+            return;
+        }
         if (position >= mTabCount) {
             position = mTabCount - 1;
         }
 
-        View tabView = mTabsContainer.getChildAt(position);
-        MsgView tipView = (MsgView) tabView.findViewById(R.id.rtv_msg_tip);
+        mMsgNums.put(position, num);
+        if (mTabRenderer != null) {
+            mTabRenderer.setMsg(position, num);
+            invalidate();
+            return;
+        }
+        TabViewHolder holder = getTabHolder(position);
+        if (holder == null) {
+            return;
+        }
+        MsgView tipView = holder.msgView;
         if (tipView != null) {
             UnreadMsgUtils.show(tipView, num);
 
@@ -809,7 +1894,7 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
      * @param position 显示tab位置
      */
     public void showDot(int position) {
-        if (position >= mTabCount) {
+        if (!isTabsDeferred() && position >= mTabCount) {
             position = mTabCount - 1;
         }
         showMsg(position, 0);
@@ -821,17 +1906,74 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
      * @param position tab位置
      */
     public void hideMsg(int position) {
+        if (isTabsDeferred()) {
+            mMsgNums.delete(position);
+            return;
+        }
         if (position >= mTabCount) {
             position = mTabCount - 1;
         }
 
-        View tabView = mTabsContainer.getChildAt(position);
-        MsgView tipView = (MsgView) tabView.findViewById(R.id.rtv_msg_tip);
+        mMsgNums.delete(position);
+        if (mTabRenderer != null) {
+            mTabRenderer.setMsg(position, -1);
+            invalidate();
+            return;
+        }
+        TabViewHolder holder = getTabHolder(position);
+        if (holder == null) {
+            return;
+        }
+        MsgView tipView = holder.msgView;
         if (tipView != null) {
             tipView.setVisibility(View.GONE);
         }
     }
 
+    /* -- 批量更新未读消息 -- */
+    private final SparseIntArray mPendingMsgs = new SparseIntArray();
+    private boolean mMsgUpdateScheduled;
+    private final Runnable mApplyMsgsRunnable = this::applyPendingMsgs;
+
+    /**
+     * 批量更新未读消息,多次调用会合并到下一帧统一生效,与当前状态相同的tab不会被更新
+     *
+     * @param msgs key为tab位置,value小于0隐藏,等于0显示红点,大于0显示数字
+     */
+    public void updateMsgs(SparseIntArray msgs) {
+        for (int i = 0; i < msgs.size(); i++) {
+            mPendingMsgs.put(msgs.keyAt(i), msgs.valueAt(i));
+        }
+        if (!mMsgUpdateScheduled) {
+            mMsgUpdateScheduled = true;
+            ViewCompat.postOnAnimation(this, mApplyMsgsRunnable);
+        }
+    }
+
+    private void applyPendingMsgs() {
+        mMsgUpdateScheduled = false;
+        if (isTabsDeferred()) {
+            // tab创建完成后再应用
+            return;
+        }
+        for (int i = 0; i < mPendingMsgs.size(); i++) {
+            int position = mPendingMsgs.keyAt(i);
+            int num = mPendingMsgs.valueAt(i);
+            if (position < 0 || position >= mTabCount) {
+                continue;
+            }
+            int index = mMsgNums.indexOfKey(position);
+            if (num < 0) {
+                if (index >= 0) {
+                    hideMsg(position);
+                }
+            } else if (index < 0 || mMsgNums.valueAt(index) != num) {
+                showMsg(position, num);
+            }
+        }
+        mPendingMsgs.clear();
+    }
+
     /**
      * 设置未读消息偏移，原点为文字的右上角。当控件高度固定，消息提示位置易控制，显示效果佳。
      * @param position
@@ -839,15 +1981,24 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
      * @param bottomPadding
      */
     public void setMsgMargin(int position, float leftPadding, float bottomPadding) {
+        if (isTabsDeferred()) {
+            return;
+        }
         if (position >= mTabCount) {
             position = mTabCount - 1;
         }
-        View tabView = mTabsContainer.getChildAt(position);
-        MsgView tipView = (MsgView) tabView.findViewById(R.id.rtv_msg_tip);
+        if (mTabRenderer != null) {
+            mTabRenderer.setMsgMargin(position, leftPadding, bottomPadding);
+            invalidate();
+            return;
+        }
+        TabViewHolder holder = getTabHolder(position);
+        if (holder == null) {
+            return;
+        }
+        MsgView tipView = holder.msgView;
         if (tipView != null) {
-            TextView tabTitleView = (TextView) tabView.findViewById(R.id.tv_tab_title);
-            mTextPaint.setTextSize(mTextSize);
-            float textWidth = mTextPaint.measureText(tabTitleView.getText().toString());
+            float textWidth = getTitleWidth(position, false);
             float textHeight = mTextPaint.descent() - mTextPaint.ascent();
             MarginLayoutParams lp = (MarginLayoutParams) tipView.getLayoutParams();
             lp.leftMargin = mTabWidth >= 0 ? (int) (mTabWidth / 2 + textWidth / 2 + DimensionUtils.dp2px(getContext(), leftPadding)) : (int) (mTabPadding + textWidth + DimensionUtils.dp2px(getContext(), leftPadding));
@@ -864,8 +2015,8 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
         if (position >= mTabCount) {
             position = mTabCount - 1;
         }
-        View tabView = mTabsContainer.getChildAt(position);
-        return (MsgView) tabView.findViewById(R.id.rtv_msg_tip);
+        TabViewHolder holder = getTabHolder(position);
+        return holder == null ? null : holder.msgView;
     }
 
     private OnTabSelectListener mListener;
@@ -877,13 +2028,37 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
     static class InnerPagerAdapter extends FragmentPagerAdapter {
         private ArrayList<Fragment> fragments;
         private final String[] titles;
+        private final FragmentManager fm;
+        /**
+         * 最多保留视图的离屏页面数,小于0时全部保留
+         */
+        private int maxRetained = -1;
+        private boolean keepState = true;
+        /**
+         * 已离开ViewPager缓存范围但仍保留视图的页面,按访问顺序排列,最久未访问的在前。
+         * 全部保留时也记录,之后设置保留数量时可以释放
+         */
+        private final LinkedHashMap<Integer, Object> retained = new LinkedHashMap<>(16, 0.75f, true);
+        private FragmentTransaction removeTransaction;
 
         public InnerPagerAdapter(FragmentManager fm, ArrayList<Fragment> fragments, String[] titles) {
             super(fm);
+            this.fm = fm;
             this.fragments = fragments;
             this.titles = titles;
         }
 
+        void setRetention(int maxRetained, boolean keepState) {
+            this.maxRetained = maxRetained;
+            this.keepState = keepState;
+        }
+
+        @Override
+        public Object instantiateItem(ViewGroup container, int position) {
+            retained.remove(position);
+            return super.instantiateItem(container, position);
+        }
+
         @Override
         public int getCount() {
             return fragments.size();
@@ -901,8 +2076,38 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
 
         @Override
         public void destroyItem(ViewGroup container, int position, Object object) {
-            // 覆写destroyItem并且空实现,这样每个Fragment中的视图就不会被销毁
-            // super.destroyItem(container, position, object);
+            retained.put(position, object);
+            // 未设置保留数量时不销毁,这样每个Fragment中的视图就不会被销毁
+            if (maxRetained < 0) {
+                return;
+            }
+            Iterator<Map.Entry<Integer, Object>> iterator = retained.entrySet().iterator();
+            while (retained.size() > maxRetained && iterator.hasNext()) {
+                Map.Entry<Integer, Object> eldest = iterator.next();
+                iterator.remove();
+                releaseItem(container, eldest.getKey(), eldest.getValue());
+            }
+        }
+
+        private void releaseItem(ViewGroup container, int position, Object object) {
+            if (keepState) {
+                // detach,只销毁视图,Fragment及其状态保留在FragmentManager中
+                super.destroyItem(container, position, object);
+            } else {
+                if (removeTransaction == null) {
+                    removeTransaction = fm.beginTransaction();
+                }
+                removeTransaction.remove((Fragment) object);
+            }
+        }
+
+        @Override
+        public void finishUpdate(ViewGroup container) {
+            super.finishUpdate(container);
+            if (removeTransaction != null) {
+                removeTransaction.commitNowAllowingStateLoss();
+                removeTransaction = null;
+            }
         }
 
         @Override
@@ -911,6 +2116,30 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
         }
     }
 
+    /**
+     * ViewPager2使用的适配器,离屏Fragment由FragmentStateAdapter销毁并保存状态
+     */
+    static class InnerStateAdapter extends FragmentStateAdapter {
+        private final TabFragmentProvider provider;
+        private final int count;
+
+        public InnerStateAdapter(FragmentActivity fa, TabFragmentProvider provider, int count) {
+            super(fa);
+            this.provider = provider;
+            this.count = count;
+        }
+
+        @Override
+        public Fragment createFragment(int position) {
+            return provider.createFragment(position);
+        }
+
+        @Override
+        public int getItemCount() {
+            return count;
+        }
+    }
+
     @Override
     protected Parcelable onSaveInstanceState() {
         Bundle bundle = new Bundle();
@@ -925,7 +2154,7 @@ public class SlidingTabLayout extends HorizontalScrollView implements ViewPager.
             Bundle bundle = (Bundle) state;
             mCurrentTab = bundle.getInt("mCurrentTab");
             state = bundle.getParcelable("instanceState");
-            if (mCurrentTab != 0 && mTabsContainer.getChildCount() > 0) {
+            if (mCurrentTab != 0 && mTabCount > 0) {
                 updateTabSelection(mCurrentTab);
                 scrollToCurrentTab();
             }
@@ -0,0 +1,21 @@
+package com.github.tablayout.listener;
+
+import com.github.tablayout.widget.TabIcon;
+
+/**
+ * 支持Drawable、Bitmap和Uri图标的tab,图标加载完成前显示getTabSelectedIcon和getTabUnselectedIcon
+ * 对应的资源图标作为占位图。仅CommonTabLayout的普通模式支持,canvas绘制模式下只显示资源图标
+ */
+public interface IIconTab extends ITab {
+    /**
+     * 获取Tab选中icon,返回null时使用getTabSelectedIcon
+     * @return
+     */
+    TabIcon getTabSelectedIconSource();
+
+    /**
+     * 获取Tab未选中icon,返回null时使用getTabUnselectedIcon
+     * @return
+     */
+    TabIcon getTabUnselectedIconSource();
+}
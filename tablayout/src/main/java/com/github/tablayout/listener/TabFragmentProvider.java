@@ -0,0 +1,14 @@
+package com.github.tablayout.listener;
+
+import androidx.fragment.app.Fragment;
+
+/**
+ * 按需创建tab对应的Fragment,页面被回收后再次显示时会重新调用
+ */
+public interface TabFragmentProvider {
+    /**
+     * 创建position位置的Fragment,每次调用都需要返回新的实例
+     * @param position
+     */
+    Fragment createFragment(int position);
+}
@@ -0,0 +1,16 @@
+package com.github.tablayout.listener;
+
+/**
+ * 增量更新tab数据时判断新旧数据的对应关系,类似DiffUtil.ItemCallback
+ */
+public interface TabItemCallback<T> {
+    /**
+     * 是否为同一个tab,相同时复用原来的tab及其未读消息
+     */
+    boolean areItemsTheSame(T oldItem, T newItem);
+
+    /**
+     * 同一个tab的内容是否相同,不同时重新设置标题和图标
+     */
+    boolean areContentsTheSame(T oldItem, T newItem);
+}
@@ -0,0 +1,38 @@
+package com.github.tablayout.listener;
+
+/**
+ * TabLayout性能数据回调,均在主线程回调,时间单位为纳秒
+ */
+public interface TabLayoutMetricsListener {
+    /**
+     * tab切换完成
+     *
+     * @param fromTab
+     * @param toTab
+     * @param latencyNanos 从切换开始到切换后第一帧绘制完成的耗时,包括Fragment切换
+     */
+    void onTabSwitch(int fromTab, int toTab, long latencyNanos);
+
+    /**
+     * notifyDataSetChanged创建tab完成,异步创建时只统计主线程部分
+     *
+     * @param tabCount     同步创建的tab数量
+     * @param durationNanos
+     */
+    void onTabsInflated(int tabCount, long durationNanos);
+
+    /**
+     * TabLayout绘制完成,包括onDraw和tab的绘制
+     *
+     * @param durationNanos
+     */
+    void onDraw(long durationNanos);
+
+    /**
+     * 指示器动画或页面滑动结束
+     *
+     * @param droppedFrames 期间掉帧的数量
+     * @param totalFrames   期间绘制的帧数
+     */
+    void onFramesDropped(int droppedFrames, int totalFrames);
+}
@@ -0,0 +1,132 @@
+package com.github.tablayout.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import com.github.tablayout.widget.RecycledTabPool;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 在后台线程创建tab布局,全部完成后在主线程一次性回调,避免大量tab阻塞首帧。
+ * 整个批次在一个后台任务中创建,不会因为排队阻塞主线程;设置了缓存池时优先复用池中的tab。
+ * 每次inflate都会生成新的批次,之前未完成的批次结果会被丢弃
+ */
+public class AsyncTabInflater {
+    public interface Callback {
+        /**
+         * 当前批次的所有tab创建完成,在主线程回调
+         *
+         * @param tabViews 按位置排列的tab
+         */
+        void onTabsInflated(View[] tabViews);
+    }
+
+    /**
+     * 所有TabLayout共享的创建线程
+     */
+    private static final Executor sExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "AsyncTabInflater");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    private final Context mContext;
+    private final LayoutInflater mInflater;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    /**
+     * 当前批次,用于丢弃过期的回调
+     */
+    private volatile int mGeneration;
+    private boolean mPending;
+
+    public AsyncTabInflater(Context context) {
+        mContext = context;
+        // 后台线程使用独立的LayoutInflater,不与主线程共享状态
+        mInflater = LayoutInflater.from(context).cloneInContext(context);
+    }
+
+    /**
+     * 异步创建count个相同布局的tab
+     *
+     * @param pool 为null时不使用缓存池
+     */
+    public void inflate(int layoutResId, int count, RecycledTabPool pool, Callback callback) {
+        int[] layoutResIds = new int[count];
+        Arrays.fill(layoutResIds, layoutResId);
+        inflate(layoutResIds, pool, callback);
+    }
+
+    /**
+     * 异步创建tab,layoutResIds[i]为第i个tab的布局
+     *
+     * @param pool 为null时不使用缓存池
+     */
+    public void inflate(final int[] layoutResIds, RecycledTabPool pool, final Callback callback) {
+        final int generation = ++mGeneration;
+        final View[] tabViews = new View[layoutResIds.length];
+        boolean complete = true;
+        for (int i = 0; i < layoutResIds.length; i++) {
+            tabViews[i] = pool == null ? null : pool.obtain(layoutResIds[i], mContext);
+            complete &= tabViews[i] != null;
+        }
+        if (complete) {
+            mPending = false;
+            callback.onTabsInflated(tabViews);
+            return;
+        }
+        mPending = true;
+        try {
+            sExecutor.execute(() -> {
+                for (int i = 0; i < layoutResIds.length && generation == mGeneration; i++) {
+                    if (tabViews[i] != null) {
+                        continue;
+                    }
+                    try {
+                        tabViews[i] = mInflater.inflate(layoutResIds[i], null, false);
+                    } catch (RuntimeException e) {
+                        // 无法在后台创建的tab回到主线程创建
+                        break;
+                    }
+                }
+                mMainHandler.post(() -> deliver(generation, layoutResIds, tabViews, callback));
+            });
+        } catch (RejectedExecutionException e) {
+            deliver(generation, layoutResIds, tabViews, callback);
+        }
+    }
+
+    private void deliver(int generation, int[] layoutResIds, View[] tabViews, Callback callback) {
+        if (generation != mGeneration) {
+            return;
+        }
+        for (int i = 0; i < tabViews.length; i++) {
+            if (tabViews[i] == null) {
+                tabViews[i] = View.inflate(mContext, layoutResIds[i], null);
+            }
+        }
+        mPending = false;
+        callback.onTabsInflated(tabViews);
+    }
+
+    /**
+     * 丢弃当前未完成的批次
+     */
+    public void cancel() {
+        mGeneration++;
+        mPending = false;
+    }
+
+    /**
+     * 是否有未完成的批次
+     */
+    public boolean isPending() {
+        return mPending;
+    }
+}
@@ -1,65 +1,236 @@
 package com.github.tablayout.utils;
 
+import android.os.Looper;
+import android.os.MessageQueue;
+
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
+import androidx.lifecycle.Lifecycle;
+
+import com.github.tablayout.listener.TabFragmentProvider;
 
 import java.util.ArrayList;
+import java.util.Collections;
 
 public class FragmentChangeManager {
     private final FragmentManager mFragmentManager;
     private final int mContainerViewId;
     /**
-     * Fragment切换数组
+     * Fragment切换数组,懒加载且由provider创建时未创建的位置为null
      */
     private final ArrayList<Fragment> mFragments;
+    /**
+     * 按需创建Fragment,为null时使用传入的fragments
+     */
+    private final TabFragmentProvider mProvider;
+    /**
+     * 已经添加到容器中的Fragment
+     */
+    private final boolean[] mAttached;
     /**
      * 当前选中的Tab
      */
     private int mCurrentTab;
+    /**
+     * 是否使用commitNow同步提交事务
+     */
+    private boolean mCommitNow;
+    /**
+     * 是否允许在onSaveInstanceState之后提交事务
+     */
+    private boolean mAllowStateLoss;
+    /**
+     * 是否在首次选中时才添加Fragment
+     */
+    private final boolean mLazy;
+    /**
+     * 懒加载时是否在主线程空闲时预先添加相邻的Fragment
+     */
+    private final boolean mPrefetchNeighbours;
+    private boolean mPrefetchScheduled;
+    private final MessageQueue.IdleHandler mPrefetchHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            mPrefetchScheduled = false;
+            prefetchNeighbours();
+            return false;
+        }
+    };
 
     public FragmentChangeManager(FragmentManager fm, int containerViewId, ArrayList<Fragment> fragments) {
+        this(fm, containerViewId, fragments, false, false);
+    }
+
+    /**
+     * @param commitNow      是否使用commitNow同步提交事务
+     * @param allowStateLoss 是否允许在onSaveInstanceState之后提交事务
+     */
+    public FragmentChangeManager(FragmentManager fm, int containerViewId, ArrayList<Fragment> fragments,
+                                 boolean commitNow, boolean allowStateLoss) {
+        this(fm, containerViewId, fragments, commitNow, allowStateLoss, false, false);
+    }
+
+    /**
+     * @param lazy               是否在首次选中时才添加Fragment,未选中过的Fragment不会执行onCreateView
+     * @param prefetchNeighbours 懒加载时是否在主线程空闲时预先添加当前tab相邻的Fragment
+     */
+    public FragmentChangeManager(FragmentManager fm, int containerViewId, ArrayList<Fragment> fragments,
+                                 boolean commitNow, boolean allowStateLoss, boolean lazy, boolean prefetchNeighbours) {
+        this(fm, containerViewId, fragments, null, commitNow, allowStateLoss, lazy, prefetchNeighbours);
+    }
+
+    /**
+     * 懒加载模式,Fragment在首次选中(或预加载)时才通过provider创建并添加
+     *
+     * @param count              Fragment数量
+     * @param prefetchNeighbours 是否在主线程空闲时预先创建当前tab相邻的Fragment
+     */
+    public FragmentChangeManager(FragmentManager fm, int containerViewId, int count, TabFragmentProvider provider,
+                                 boolean commitNow, boolean allowStateLoss, boolean prefetchNeighbours) {
+        this(fm, containerViewId, new ArrayList<Fragment>(Collections.<Fragment>nCopies(count, null)), provider,
+                commitNow, allowStateLoss, true, prefetchNeighbours);
+    }
+
+    private FragmentChangeManager(FragmentManager fm, int containerViewId, ArrayList<Fragment> fragments, TabFragmentProvider provider,
+                                  boolean commitNow, boolean allowStateLoss, boolean lazy, boolean prefetchNeighbours) {
         this.mFragmentManager = fm;
         this.mContainerViewId = containerViewId;
         this.mFragments = fragments;
+        this.mProvider = provider;
+        this.mCommitNow = commitNow;
+        this.mAllowStateLoss = allowStateLoss;
+        this.mLazy = lazy;
+        this.mPrefetchNeighbours = prefetchNeighbours;
+        this.mAttached = new boolean[fragments.size()];
         initFragments();
     }
 
     /**
-     * 初始化fragments
+     * 初始化fragments,在同一个事务中添加,只有第一个显示,其余隐藏并限制在STARTED状态。
+     * 懒加载时只添加第一个
      */
     private void initFragments() {
-        for (Fragment fragment : mFragments) {
-            mFragmentManager.beginTransaction().add(mContainerViewId, fragment).hide(fragment).commit();
+        int count = mLazy ? Math.min(1, mFragments.size()) : mFragments.size();
+        FragmentTransaction ft = mFragmentManager.beginTransaction().setReorderingAllowed(true);
+        for (int i = 0; i < count; i++) {
+            Fragment fragment = obtainFragment(i);
+            ft.add(mContainerViewId, fragment);
+            mAttached[i] = true;
+            if (i == 0) {
+                ft.setMaxLifecycle(fragment, Lifecycle.State.RESUMED);
+            } else {
+                ft.hide(fragment).setMaxLifecycle(fragment, Lifecycle.State.STARTED);
+            }
         }
-
-        setFragments(0);
+        mCurrentTab = 0;
+        commit(ft);
+        schedulePrefetch();
     }
 
     /**
-     * 界面切换控制
+     * 界面切换控制,只隐藏上一个并显示新的Fragment,在同一个事务中完成。
+     * 懒加载时新的Fragment首次选中才添加
      *
      * @param index
      */
     public void setFragments(int index) {
-        for (int i = 0; i < mFragments.size(); i++) {
-            FragmentTransaction ft = mFragmentManager.beginTransaction();
-            Fragment fragment = mFragments.get(i);
-            if (i == index) {
+        if (index == mCurrentTab) {
+            return;
+        }
+        FragmentTransaction ft = mFragmentManager.beginTransaction().setReorderingAllowed(true);
+        if (mCurrentTab < mFragments.size() && mAttached[mCurrentTab]) {
+            Fragment last = mFragments.get(mCurrentTab);
+            ft.hide(last).setMaxLifecycle(last, Lifecycle.State.STARTED);
+        }
+        if (index < mFragments.size()) {
+            Fragment fragment = obtainFragment(index);
+            if (mAttached[index]) {
                 ft.show(fragment);
             } else {
-                ft.hide(fragment);
+                ft.add(mContainerViewId, fragment);
+                mAttached[index] = true;
             }
-            ft.commit();
+            ft.setMaxLifecycle(fragment, Lifecycle.State.RESUMED);
         }
         mCurrentTab = index;
+        commit(ft);
+        schedulePrefetch();
+    }
+
+    private Fragment obtainFragment(int index) {
+        Fragment fragment = mFragments.get(index);
+        if (fragment == null) {
+            fragment = mProvider.createFragment(index);
+            mFragments.set(index, fragment);
+        }
+        return fragment;
+    }
+
+    private void schedulePrefetch() {
+        if (!mLazy || !mPrefetchNeighbours || mPrefetchScheduled || Looper.myLooper() == null) {
+            return;
+        }
+        mPrefetchScheduled = true;
+        Looper.myQueue().addIdleHandler(mPrefetchHandler);
+    }
+
+    /**
+     * 在同一个事务中添加当前tab左右两侧尚未添加的Fragment,隐藏并限制在STARTED状态
+     */
+    private void prefetchNeighbours() {
+        if (mFragmentManager.isDestroyed() || (!mAllowStateLoss && mFragmentManager.isStateSaved())) {
+            return;
+        }
+        FragmentTransaction ft = null;
+        for (int i = mCurrentTab - 1; i <= mCurrentTab + 1; i += 2) {
+            if (i < 0 || i >= mFragments.size() || mAttached[i]) {
+                continue;
+            }
+            if (ft == null) {
+                ft = mFragmentManager.beginTransaction().setReorderingAllowed(true);
+            }
+            Fragment fragment = obtainFragment(i);
+            ft.add(mContainerViewId, fragment).hide(fragment).setMaxLifecycle(fragment, Lifecycle.State.STARTED);
+            mAttached[i] = true;
+        }
+        if (ft != null) {
+            commit(ft);
+        }
+    }
+
+    private void commit(FragmentTransaction ft) {
+        if (mCommitNow) {
+            if (mAllowStateLoss) {
+                ft.commitNowAllowingStateLoss();
+            } else {
+                ft.commitNow();
+            }
+        } else {
+            if (mAllowStateLoss) {
+                ft.commitAllowingStateLoss();
+            } else {
+                ft.commit();
+            }
+        }
+    }
+
+    public void setCommitNow(boolean commitNow) {
+        this.mCommitNow = commitNow;
+    }
+
+    public void setAllowStateLoss(boolean allowStateLoss) {
+        this.mAllowStateLoss = allowStateLoss;
     }
 
     public int getCurrentTab() {
         return mCurrentTab;
     }
 
+    /**
+     * 获取当前显示的Fragment
+     */
     public Fragment getCurrentFragment() {
         return mFragments.get(mCurrentTab);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,24 @@
+package com.github.tablayout.utils;
+
+/**
+ * 指示器左右边界,动画过程中复用同一个对象,避免每帧分配
+ */
+public class IndicatorPoint {
+    public float left;
+    public float right;
+
+    public void set(float left, float right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     * 在start和end之间插值并写入当前对象,fraction允许超出[0,1]以支持回弹效果
+     *
+     * @param fraction 插值器处理后的动画进度
+     */
+    public void evaluate(float fraction, IndicatorPoint start, IndicatorPoint end) {
+        left = start.left + fraction * (end.left - start.left);
+        right = start.right + fraction * (end.right - start.right);
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.tablayout.utils;
+
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+
+import com.github.tablayout.listener.TabItemCallback;
+
+import java.util.List;
+
+/**
+ * 计算新旧tab数据的对应关系,用于增量更新tab
+ */
+public class TabDiff {
+    public static final int NO_POSITION = -1;
+
+    private TabDiff() {
+    }
+
+    /**
+     * 按顺序为每个新数据匹配第一个未被匹配的旧数据
+     *
+     * @return 下标为旧位置, 值为新位置, 被移除的旧数据为NO_POSITION
+     */
+    public static <T> int[] match(List<T> oldItems, List<T> newItems, TabItemCallback<T> callback) {
+        int[] oldToNew = new int[oldItems.size()];
+        for (int i = 0; i < oldToNew.length; i++) {
+            oldToNew[i] = NO_POSITION;
+        }
+        boolean[] matched = new boolean[oldItems.size()];
+        for (int newPos = 0; newPos < newItems.size(); newPos++) {
+            T newItem = newItems.get(newPos);
+            // 优先匹配原位置,位置不变的tab不需要移动
+            if (newPos < matched.length && !matched[newPos] && callback.areItemsTheSame(oldItems.get(newPos), newItem)) {
+                matched[newPos] = true;
+                oldToNew[newPos] = newPos;
+                continue;
+            }
+            for (int oldPos = 0; oldPos < matched.length; oldPos++) {
+                if (!matched[oldPos] && callback.areItemsTheSame(oldItems.get(oldPos), newItem)) {
+                    matched[oldPos] = true;
+                    oldToNew[oldPos] = newPos;
+                    break;
+                }
+            }
+        }
+        return oldToNew;
+    }
+
+    /**
+     * 将from位置移动到to位置时各旧位置对应的新位置
+     */
+    public static int[] move(int count, int from, int to) {
+        int[] oldToNew = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (i == from) {
+                oldToNew[i] = to;
+            } else if (from < to && i > from && i <= to) {
+                oldToNew[i] = i - 1;
+            } else if (from > to && i >= to && i < from) {
+                oldToNew[i] = i + 1;
+            } else {
+                oldToNew[i] = i;
+            }
+        }
+        return oldToNew;
+    }
+
+    /**
+     * 在index位置插入一个tab时各旧位置对应的新位置
+     */
+    public static int[] insert(int count, int index) {
+        int[] oldToNew = new int[count];
+        for (int i = 0; i < count; i++) {
+            oldToNew[i] = i < index ? i : i + 1;
+        }
+        return oldToNew;
+    }
+
+    /**
+     * 移除index位置的tab时各旧位置对应的新位置
+     */
+    public static int[] remove(int count, int index) {
+        int[] oldToNew = new int[count];
+        for (int i = 0; i < count; i++) {
+            oldToNew[i] = i < index ? i : i == index ? NO_POSITION : i - 1;
+        }
+        return oldToNew;
+    }
+
+    /**
+     * 计算选中位置的新位置,选中的tab被移除时保持原位置,超出范围时为最后一个
+     *
+     * @param newCount 新的tab数量
+     */
+    public static int remapPosition(int position, int[] oldToNew, int newCount) {
+        if (position >= 0 && position < oldToNew.length && oldToNew[position] != NO_POSITION) {
+            return oldToNew[position];
+        }
+        return Math.min(position, newCount - 1);
+    }
+
+    /**
+     * 将以旧位置为key的数据转换为以新位置为key,被移除的位置丢弃
+     */
+    public static void remap(SparseIntArray array, int[] oldToNew) {
+        SparseIntArray old = array.clone();
+        array.clear();
+        for (int i = 0; i < old.size(); i++) {
+            int oldPos = old.keyAt(i);
+            if (oldPos >= 0 && oldPos < oldToNew.length && oldToNew[oldPos] != NO_POSITION) {
+                array.put(oldToNew[oldPos], old.valueAt(i));
+            }
+        }
+    }
+
+    /**
+     * 将以旧位置为key的数据转换为以新位置为key,被移除的位置丢弃
+     */
+    public static void remap(SparseBooleanArray array, int[] oldToNew) {
+        SparseBooleanArray old = array.clone();
+        array.clear();
+        for (int i = 0; i < old.size(); i++) {
+            int oldPos = old.keyAt(i);
+            if (oldPos >= 0 && oldPos < oldToNew.length && oldToNew[oldPos] != NO_POSITION) {
+                array.put(oldToNew[oldPos], old.valueAt(i));
+            }
+        }
+    }
+}
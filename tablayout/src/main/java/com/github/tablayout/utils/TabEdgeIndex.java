@@ -0,0 +1,55 @@
+package com.github.tablayout.utils;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * 普通模式下tab边界的前缀和索引。每次布局后根据tab的实际位置重建,之后查询tab的位置、
+ * 查找坐标所在的tab都不再访问子View。tab增删后到下一次布局前索引无效
+ */
+public class TabEdgeIndex implements ViewGroup.OnHierarchyChangeListener {
+    private final ViewGroup mContainer;
+    private final TabOffsets mOffsets = new TabOffsets();
+    private boolean mValid;
+
+    /**
+     * @param container tab容器,tab需要从0开始从左到右依次排列
+     */
+    public TabEdgeIndex(ViewGroup container) {
+        this.mContainer = container;
+        container.setOnHierarchyChangeListener(this);
+    }
+
+    /**
+     * 根据tab的位置重建索引,在容器布局完成后调用
+     */
+    public void rebuild() {
+        int count = mContainer.getChildCount();
+        mOffsets.setCount(count);
+        int lastRight = 0;
+        for (int i = 0; i < count; i++) {
+            int right = mContainer.getChildAt(i).getRight();
+            mOffsets.setWidth(i, right - lastRight);
+            lastRight = right;
+        }
+        mOffsets.rebuild();
+        mValid = true;
+    }
+
+    /**
+     * @return 索引有效时返回tab宽度表,否则返回null
+     */
+    public TabOffsets getOffsets() {
+        return mValid ? mOffsets : null;
+    }
+
+    @Override
+    public void onChildViewAdded(View parent, View child) {
+        mValid = false;
+    }
+
+    @Override
+    public void onChildViewRemoved(View parent, View child) {
+        mValid = false;
+    }
+}
@@ -0,0 +1,205 @@
+package com.github.tablayout.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Trace;
+import android.view.Choreographer;
+import android.view.Display;
+import android.view.View;
+
+import com.github.tablayout.listener.TabLayoutMetricsListener;
+
+/**
+ * 统计tab切换、创建和绘制的耗时以及动画过程中的掉帧,同时为每个阶段添加Trace片段。
+ * 没有设置TabLayoutMetricsListener时不做任何统计
+ */
+public class TabMetricsTracker {
+    public static final String SECTION_INFLATE = "TabLayout#inflate";
+    public static final String SECTION_SWITCH = "TabLayout#setCurrentTab";
+    public static final String SECTION_FRAGMENTS = "TabLayout#setFragments";
+    public static final String SECTION_DRAW = "TabLayout#draw";
+
+    /**
+     * 未开启统计时begin方法的返回值
+     */
+    private static final long NOT_TRACKING = -1;
+    private static final long DEFAULT_FRAME_INTERVAL_NANOS = 16_666_667L;
+
+    private final View mView;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private TabLayoutMetricsListener mListener;
+
+    /* -- tab switch -- */
+    private long mSwitchStartNanos = NOT_TRACKING;
+    private int mSwitchFrom;
+    private int mSwitchTo;
+    /**
+     * 在帧回调中post到消息队列最前面,执行时这一帧已经绘制完成
+     */
+    private final Runnable mSwitchDrawn = new Runnable() {
+        @Override
+        public void run() {
+            if (mListener != null && mSwitchStartNanos != NOT_TRACKING) {
+                mListener.onTabSwitch(mSwitchFrom, mSwitchTo, System.nanoTime() - mSwitchStartNanos);
+            }
+            mSwitchStartNanos = NOT_TRACKING;
+        }
+    };
+    private final Choreographer.FrameCallback mSwitchFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mHandler.postAtFrontOfQueue(mSwitchDrawn);
+        }
+    };
+
+    /* -- dropped frames -- */
+    private boolean mMonitoring;
+    private long mFrameIntervalNanos;
+    private long mLastFrameNanos;
+    private int mFrameCount;
+    private int mDroppedFrames;
+    private final Choreographer.FrameCallback mFrameMonitor = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (mLastFrameNanos > 0) {
+                // 两帧间隔超过一个刷新周期的部分按四舍五入计为掉帧
+                long skipped = (frameTimeNanos - mLastFrameNanos - mFrameIntervalNanos / 2) / mFrameIntervalNanos;
+                if (skipped > 0) {
+                    mDroppedFrames += skipped;
+                }
+                mFrameCount++;
+            }
+            mLastFrameNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    };
+
+    public TabMetricsTracker(View view) {
+        this.mView = view;
+    }
+
+    public void setListener(TabLayoutMetricsListener listener) {
+        this.mListener = listener;
+        if (listener == null) {
+            cancelTabSwitch();
+            stopFrameMonitor();
+        }
+    }
+
+    public TabLayoutMetricsListener getListener() {
+        return mListener;
+    }
+
+    /**
+     * 开始一个Trace片段
+     *
+     * @return 开始时间,未开启统计时返回负数
+     */
+    public long beginSection(String sectionName) {
+        if (mListener == null) {
+            return NOT_TRACKING;
+        }
+        Trace.beginSection(sectionName);
+        return System.nanoTime();
+    }
+
+    /**
+     * 结束beginSection开始的Trace片段
+     */
+    public void endSection(long startNanos) {
+        if (startNanos != NOT_TRACKING) {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * 结束创建tab的Trace片段并回调耗时
+     */
+    public void endInflate(long startNanos, int tabCount) {
+        if (startNanos == NOT_TRACKING) {
+            return;
+        }
+        Trace.endSection();
+        if (mListener != null) {
+            mListener.onTabsInflated(tabCount, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * 结束绘制的Trace片段并回调耗时
+     */
+    public void endDraw(long startNanos) {
+        if (startNanos == NOT_TRACKING) {
+            return;
+        }
+        Trace.endSection();
+        if (mListener != null) {
+            mListener.onDraw(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * 开始一次tab切换,在切换后的第一帧绘制完成时回调耗时。上一次切换还未完成时以新的切换为准
+     *
+     * @return 开始时间,需要调用endSection结束切换的Trace片段
+     */
+    public long beginTabSwitch(int fromTab, int toTab) {
+        long startNanos = beginSection(SECTION_SWITCH);
+        if (startNanos == NOT_TRACKING) {
+            return NOT_TRACKING;
+        }
+        if (mSwitchStartNanos == NOT_TRACKING) {
+            mSwitchFrom = fromTab;
+            mSwitchStartNanos = startNanos;
+        }
+        mSwitchTo = toTab;
+        Choreographer.getInstance().removeFrameCallback(mSwitchFrameCallback);
+        mHandler.removeCallbacks(mSwitchDrawn);
+        Choreographer.getInstance().postFrameCallback(mSwitchFrameCallback);
+        return startNanos;
+    }
+
+    /**
+     * 丢弃未完成的tab切换统计,在离开窗口时调用
+     */
+    public void cancelTabSwitch() {
+        Choreographer.getInstance().removeFrameCallback(mSwitchFrameCallback);
+        mHandler.removeCallbacks(mSwitchDrawn);
+        mSwitchStartNanos = NOT_TRACKING;
+    }
+
+    /**
+     * 开始统计掉帧,在指示器动画或页面滑动开始时调用
+     */
+    public void startFrameMonitor() {
+        if (mListener == null || mMonitoring) {
+            return;
+        }
+        mMonitoring = true;
+        mFrameIntervalNanos = getFrameIntervalNanos();
+        mLastFrameNanos = 0;
+        mFrameCount = 0;
+        mDroppedFrames = 0;
+        Choreographer.getInstance().postFrameCallback(mFrameMonitor);
+    }
+
+    /**
+     * 停止统计掉帧并回调结果
+     */
+    public void stopFrameMonitor() {
+        if (!mMonitoring) {
+            return;
+        }
+        mMonitoring = false;
+        Choreographer.getInstance().removeFrameCallback(mFrameMonitor);
+        if (mListener != null && mFrameCount > 0) {
+            mListener.onFramesDropped(mDroppedFrames, mFrameCount);
+        }
+    }
+
+    private long getFrameIntervalNanos() {
+        Display display = mView.getDisplay();
+        float refreshRate = display == null ? 0 : display.getRefreshRate();
+        return refreshRate > 0 ? (long) (1_000_000_000L / refreshRate) : DEFAULT_FRAME_INTERVAL_NANOS;
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.tablayout.utils;
+
+/**
+ * tab宽度表,维护每个tab的宽度及其前缀和,无需访问子View即可得到tab的位置信息
+ */
+public class TabOffsets {
+    private int[] mWidths = new int[0];
+    /**
+     * mOffsets[i]为第i个tab的left,mOffsets[count]为所有tab的总宽度
+     */
+    private int[] mOffsets = new int[1];
+    private int mCount;
+
+    /**
+     * 设置tab数量,之后需要通过setWidth设置每个tab的宽度并调用rebuild
+     *
+     * @param count tab数量
+     */
+    public void setCount(int count) {
+        if (mWidths.length < count) {
+            mWidths = new int[count];
+            mOffsets = new int[count + 1];
+        }
+        mCount = count;
+    }
+
+    public void setWidth(int position, int width) {
+        mWidths[position] = width;
+    }
+
+    /**
+     * 根据宽度表重新计算前缀和
+     */
+    public void rebuild() {
+        mOffsets[0] = 0;
+        for (int i = 0; i < mCount; i++) {
+            mOffsets[i + 1] = mOffsets[i] + mWidths[i];
+        }
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    public int getWidth(int position) {
+        return mWidths[position];
+    }
+
+    public int getLeft(int position) {
+        return mOffsets[position];
+    }
+
+    public int getRight(int position) {
+        return mOffsets[position + 1];
+    }
+
+    public int getTotalWidth() {
+        return mOffsets[mCount];
+    }
+
+    /**
+     * 二分查找x所在的tab,x超出范围时返回最近的tab
+     *
+     * @param x 相对于第一个tab左边的偏移
+     * @return tab位置, 没有tab时返回-1
+     */
+    public int indexAt(int x) {
+        if (mCount <= 0) {
+            return -1;
+        }
+        int low = 0;
+        int high = mCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (mOffsets[mid] <= x) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 查找与[start, end)相交的tab
+     *
+     * @param start 相对于第一个tab左边的偏移
+     * @param end   相对于第一个tab左边的偏移
+     * @param range 长度为2,返回第一个和最后一个相交的tab
+     * @return 没有相交的tab时返回false
+     */
+    public boolean findRange(int start, int end, int[] range) {
+        if (mCount <= 0 || start >= end || end <= 0 || start >= getTotalWidth()) {
+            return false;
+        }
+        range[0] = indexAt(start);
+        range[1] = indexAt(end - 1);
+        return true;
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.tablayout.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 在后台线程计算tab标题的文字布局,避免首帧在主线程排版。计算期间tab所在的容器为GONE,不参与测量,
+ * 完成后在主线程一次性设置计算结果再显示容器,标题只在测量时使用计算结果排版一次。
+ * 计算参数取自调用时TextView的样式,设置时样式已变化则保留原文字
+ */
+public class TabTextPrecomputer {
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    /**
+     * 当前批次,用于丢弃过期的结果
+     */
+    private int mGeneration;
+    private View mContainer;
+    private TextView[] mPendingViews;
+    private CharSequence[] mPendingTexts;
+    private Runnable mOnApplied;
+
+    /**
+     * 为textViews[i]计算texts[i]的文字布局,需要在样式设置完成且tab测量之前调用
+     *
+     * @param container tab所在的容器,计算期间隐藏
+     * @param onApplied 计算结果设置完成并显示容器后在主线程回调
+     */
+    public void precompute(View container, final TextView[] textViews, final CharSequence[] texts, Executor executor,
+                           Runnable onApplied) {
+        cancel();
+        final int generation = ++mGeneration;
+        final PrecomputedTextCompat.Params[] params = new PrecomputedTextCompat.Params[textViews.length];
+        for (int i = 0; i < textViews.length; i++) {
+            params[i] = TextViewCompat.getTextMetricsParams(textViews[i]);
+        }
+        mContainer = container;
+        mPendingViews = textViews;
+        mPendingTexts = texts;
+        mOnApplied = onApplied;
+        container.setVisibility(View.GONE);
+
+        try {
+            executor.execute(() -> {
+                final PrecomputedTextCompat[] results = new PrecomputedTextCompat[texts.length];
+                for (int i = 0; i < texts.length; i++) {
+                    results[i] = PrecomputedTextCompat.create(texts[i], params[i]);
+                }
+                mMainHandler.post(() -> {
+                    if (generation == mGeneration) {
+                        apply(results);
+                    }
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            cancel();
+        }
+    }
+
+    /**
+     * 是否有未完成的计算
+     */
+    public boolean isPending() {
+        return mPendingViews != null;
+    }
+
+    private void apply(PrecomputedTextCompat[] results) {
+        for (int i = 0; i < mPendingViews.length; i++) {
+            TextView textView = mPendingViews[i];
+            // 期间被设置过其他文字的不再覆盖
+            if (!TextUtils.equals(textView.getText(), mPendingTexts[i])) {
+                continue;
+            }
+            try {
+                TextViewCompat.setPrecomputedText(textView, results[i]);
+            } catch (IllegalArgumentException ignored) {
+                // 样式已变化,保留原文字
+            }
+        }
+        Runnable onApplied = mOnApplied;
+        finish();
+        onApplied.run();
+    }
+
+    /**
+     * 丢弃未完成的计算,标题保持原文字并立即显示
+     */
+    public void cancel() {
+        mGeneration++;
+        if (isPending()) {
+            finish();
+        }
+    }
+
+    private void finish() {
+        mContainer.setVisibility(View.VISIBLE);
+        mContainer = null;
+        mPendingViews = null;
+        mPendingTexts = null;
+        mOnApplied = null;
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.tablayout.utils;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import java.util.Arrays;
+
+/**
+ * tab标题宽度缓存,以字号和字体为key,key变化时整体失效。
+ * 命中时不产生任何对象分配,用于滑动过程中频繁获取标题宽度的场景
+ */
+public class TitleWidthCache {
+    private static final float INVALID_WIDTH = -1;
+
+    private float[] mWidths = new float[0];
+    private float mTextSize = -1;
+    private Typeface mTypeface;
+
+    /**
+     * 标题数据变化时调用,清空所有缓存
+     *
+     * @param count tab数量
+     */
+    public void reset(int count) {
+        if (mWidths.length != count) {
+            mWidths = new float[count];
+        }
+        Arrays.fill(mWidths, INVALID_WIDTH);
+    }
+
+    /**
+     * 清空所有缓存,用于标题样式(如全大写)变化但数量不变的情况
+     */
+    public void invalidate() {
+        Arrays.fill(mWidths, INVALID_WIDTH);
+    }
+
+    /**
+     * 获取缓存的宽度,paint的字号或字体与缓存不一致时先清空缓存
+     *
+     * @return 标题宽度, 未缓存时返回小于0的值
+     */
+    public float get(int position, Paint paint) {
+        if (paint.getTextSize() != mTextSize || paint.getTypeface() != mTypeface) {
+            mTextSize = paint.getTextSize();
+            mTypeface = paint.getTypeface();
+            invalidate();
+        }
+        return position < mWidths.length ? mWidths[position] : INVALID_WIDTH;
+    }
+
+    public void put(int position, float width) {
+        if (position < mWidths.length) {
+            mWidths[position] = width;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.tablayout.widget;
+
+import android.graphics.Canvas;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.os.Build;
+
+import androidx.annotation.RequiresApi;
+
+/**
+ * 缓存分割线、底线等不随滑动变化的装饰。API 29及以上在硬件加速时录制到RenderNode中,
+ * 之后每帧只需重放;其他情况直接绘制。布局或样式变化时需要调用invalidate重新录制
+ */
+public class DecorationCache {
+    public interface Recorder {
+        /**
+         * 绘制装饰,坐标与View的onDraw相同
+         */
+        void onDrawDecorations(Canvas canvas);
+    }
+
+    private final Recorder mRecorder;
+    private Object mRenderNode;
+    private boolean mDirty = true;
+    private boolean mRecording;
+    private int mWidth;
+    private int mHeight;
+
+    public DecorationCache(Recorder recorder) {
+        this.mRecorder = recorder;
+    }
+
+    /**
+     * 标记需要重新录制
+     */
+    public void invalidate() {
+        mDirty = true;
+    }
+
+    /**
+     * 绘制装饰
+     *
+     * @param width  装饰所在区域的宽度,从坐标原点开始
+     * @param height 装饰所在区域的高度,从坐标原点开始
+     */
+    public void draw(Canvas canvas, int width, int height) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && canvas.isHardwareAccelerated()) {
+            drawRenderNode(canvas, width, height);
+        } else {
+            mRecorder.onDrawDecorations(canvas);
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private void drawRenderNode(Canvas canvas, int width, int height) {
+        RenderNode renderNode = (RenderNode) mRenderNode;
+        if (renderNode == null) {
+            renderNode = new RenderNode("TabDecorations");
+            mRenderNode = renderNode;
+        }
+        if (mDirty || width != mWidth || height != mHeight || !renderNode.hasDisplayList()) {
+            mDirty = false;
+            mWidth = width;
+            mHeight = height;
+            renderNode.setPosition(0, 0, width, height);
+            RecordingCanvas recordingCanvas = renderNode.beginRecording(width, height);
+            mRecording = true;
+            try {
+                mRecorder.onDrawDecorations(recordingCanvas);
+            } finally {
+                mRecording = false;
+                renderNode.endRecording();
+            }
+        }
+        canvas.drawRenderNode(renderNode);
+    }
+
+    /**
+     * 是否正在录制到RenderNode中。录制的内容在滚动时会被复用,需要绘制全部装饰;
+     * 直接绘制时可以只绘制可见范围内的部分
+     */
+    public boolean isRecording() {
+        return mRecording;
+    }
+
+    /**
+     * 释放录制的内容
+     */
+    public void release() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && mRenderNode != null) {
+            ((RenderNode) mRenderNode).discardDisplayList();
+        }
+        mDirty = true;
+    }
+}
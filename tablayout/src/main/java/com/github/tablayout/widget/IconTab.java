@@ -0,0 +1,35 @@
+package com.github.tablayout.widget;
+
+import com.github.tablayout.listener.IIconTab;
+
+/**
+ * 使用TabIcon作为图标的tab
+ */
+public class IconTab extends Tab implements IIconTab {
+    private final TabIcon selectedIcon;
+    private final TabIcon unselectedIcon;
+
+    public IconTab(String title, TabIcon selectedIcon, TabIcon unselectedIcon) {
+        this(title, selectedIcon, unselectedIcon, 0, 0);
+    }
+
+    /**
+     * @param placeholderSelected   选中图标加载完成前显示的资源图标
+     * @param placeholderUnselected 未选中图标加载完成前显示的资源图标
+     */
+    public IconTab(String title, TabIcon selectedIcon, TabIcon unselectedIcon, int placeholderSelected, int placeholderUnselected) {
+        super(title, placeholderUnselected, placeholderSelected);
+        this.selectedIcon = selectedIcon;
+        this.unselectedIcon = unselectedIcon;
+    }
+
+    @Override
+    public TabIcon getTabSelectedIconSource() {
+        return selectedIcon;
+    }
+
+    @Override
+    public TabIcon getTabUnselectedIconSource() {
+        return unselectedIcon;
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.tablayout.widget;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.view.View;
+
+/**
+ * 单独绘制指示器的覆盖层。指示器只在样式或位置确定时绘制一次,动画过程中通过位移和缩放移动,
+ * 硬件加速时只需更新RenderNode的属性,不需要重新执行onDraw
+ */
+public class IndicatorView extends View {
+    public interface Painter {
+        /**
+         * 绘制指示器,坐标与所属TabLayout的onDraw相同
+         */
+        void onDrawIndicator(Canvas canvas);
+    }
+
+    private final Painter mPainter;
+    /**
+     * 最近一次绘制时指示器的左右边界,位移和缩放都相对于它计算
+     */
+    private float mDrawnLeft;
+    private float mDrawnRight;
+
+    public IndicatorView(Context context, Painter painter) {
+        super(context);
+        this.mPainter = painter;
+        setWillNotDraw(false);
+        setClickable(false);
+        setFocusable(false);
+        setImportantForAccessibility(IMPORTANT_FOR_ACCESSIBILITY_NO);
+    }
+
+    /**
+     * 记录本次绘制的指示器边界,在Painter中调用
+     */
+    public void setDrawnBounds(float left, float right) {
+        this.mDrawnLeft = left;
+        this.mDrawnRight = right;
+    }
+
+    /**
+     * 把指示器移动到left和right之间。宽度不变时只做位移,不重新绘制;
+     * 宽度变化时只有scalable为true才通过缩放实现,否则重新绘制,避免圆角和三角形被拉伸
+     *
+     * @param scalable 指示器横向缩放后是否与重新绘制的效果相同,如没有圆角的矩形
+     */
+    public void moveTo(float left, float right, boolean scalable) {
+        float drawnWidth = mDrawnRight - mDrawnLeft;
+        float width = right - left;
+        if (Math.abs(width - drawnWidth) < 0.5f) {
+            setScaleX(1f);
+            setTranslationX(left - mDrawnLeft);
+        } else if (scalable && drawnWidth > 0) {
+            setPivotX(mDrawnLeft);
+            setTranslationX(left - mDrawnLeft);
+            setScaleX(width / drawnWidth);
+        } else {
+            redraw();
+        }
+    }
+
+    /**
+     * 清除位移和缩放,按当前的位置重新绘制
+     */
+    public void redraw() {
+        setTranslationX(0);
+        setScaleX(1f);
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        mPainter.onDrawIndicator(canvas);
+    }
+}
@@ -0,0 +1,214 @@
+package com.github.tablayout.widget;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.res.Configuration;
+import android.os.Bundle;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+
+/**
+ * 多个TabLayout共享的tab缓存池,以布局资源id区分类型,类似RecyclerView.RecycledViewPool。
+ * TabLayout离开窗口或刷新数据时归还tab,创建tab时优先从池中获取。
+ * 只有与获取方Context相同的tab才会被复用,避免主题错乱;所属Activity正在结束的tab不会被缓存,
+ * Activity销毁时缓存的tab会被丢弃。只能在主线程使用
+ */
+public class RecycledTabPool implements ComponentCallbacks2, Application.ActivityLifecycleCallbacks {
+    private static final int DEFAULT_MAX_SCRAP = 20;
+
+    private static RecycledTabPool sDefault;
+
+    private final SparseArray<ArrayList<View>> mScrap = new SparseArray<>();
+    private final SparseIntArray mMaxScrap = new SparseIntArray();
+
+    /**
+     * 获取进程内共享的缓存池,会自动响应onTrimMemory并在Activity销毁时丢弃其tab
+     */
+    public static RecycledTabPool getDefault(Context context) {
+        if (sDefault == null) {
+            sDefault = new RecycledTabPool();
+            Context appContext = context.getApplicationContext();
+            appContext.registerComponentCallbacks(sDefault);
+            if (appContext instanceof Application) {
+                ((Application) appContext).registerActivityLifecycleCallbacks(sDefault);
+            }
+        }
+        return sDefault;
+    }
+
+    /**
+     * 设置某种布局最多缓存的tab数量,默认20
+     */
+    public void setMaxRecycledViews(int layoutResId, int max) {
+        mMaxScrap.put(layoutResId, max);
+        ArrayList<View> scrap = mScrap.get(layoutResId);
+        if (scrap != null) {
+            trim(scrap, max);
+        }
+    }
+
+    /**
+     * 获取一个可复用的tab,没有时返回null
+     *
+     * @param context 使用方的Context,只复用以相同Context创建的tab
+     */
+    public View obtain(int layoutResId, Context context) {
+        ArrayList<View> scrap = mScrap.get(layoutResId);
+        if (scrap == null) {
+            return null;
+        }
+        for (int i = scrap.size() - 1; i >= 0; i--) {
+            View view = scrap.get(i);
+            if (isDead(view)) {
+                scrap.remove(i);
+            } else if (view.getContext() == context) {
+                scrap.remove(i);
+                return view;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 归还tab,tab会先从父容器移除并清除点击事件和未读消息。所属Activity正在结束时不缓存
+     */
+    public void put(int layoutResId, View view) {
+        ViewGroup parent = (ViewGroup) view.getParent();
+        if (parent != null) {
+            parent.removeView(view);
+        }
+        view.setOnClickListener(null);
+        TabViewHolder holder = TabViewHolder.get(view);
+        if (holder != null && holder.msgView != null) {
+            holder.msgView.setVisibility(View.GONE);
+        }
+
+        ArrayList<View> scrap = mScrap.get(layoutResId);
+        if (scrap == null) {
+            scrap = new ArrayList<>();
+            mScrap.put(layoutResId, scrap);
+        }
+        removeDeadViews(scrap);
+        int max = mMaxScrap.get(layoutResId, DEFAULT_MAX_SCRAP);
+        if (scrap.size() < max && !isDead(view)) {
+            scrap.add(view);
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        mScrap.clear();
+    }
+
+    /**
+     * 获取某种布局当前缓存的tab数量
+     */
+    public int getRecycledViewCount(int layoutResId) {
+        ArrayList<View> scrap = mScrap.get(layoutResId);
+        return scrap == null ? 0 : scrap.size();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND) {
+            clear();
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            // 内存紧张时释放一半
+            for (int i = 0; i < mScrap.size(); i++) {
+                ArrayList<View> scrap = mScrap.valueAt(i);
+                trim(scrap, scrap.size() / 2);
+            }
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        // 配置变化后旧的tab可能使用了旧的资源
+        clear();
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+        for (int i = 0; i < mScrap.size(); i++) {
+            ArrayList<View> scrap = mScrap.valueAt(i);
+            for (int j = scrap.size() - 1; j >= 0; j--) {
+                if (findActivity(scrap.get(j).getContext()) == activity) {
+                    scrap.remove(j);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+
+    private static void trim(ArrayList<View> scrap, int max) {
+        while (scrap.size() > max) {
+            scrap.remove(scrap.size() - 1);
+        }
+    }
+
+    /**
+     * 丢弃所属Activity已经结束的tab,避免泄漏
+     */
+    private static void removeDeadViews(ArrayList<View> scrap) {
+        for (int i = scrap.size() - 1; i >= 0; i--) {
+            if (isDead(scrap.get(i))) {
+                scrap.remove(i);
+            }
+        }
+    }
+
+    /**
+     * tab所属的Activity是否正在结束或已经销毁
+     */
+    private static boolean isDead(View view) {
+        Activity activity = findActivity(view.getContext());
+        return activity != null && (activity.isFinishing() || activity.isDestroyed());
+    }
+
+    private static Activity findActivity(Context context) {
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) {
+                return (Activity) context;
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return null;
+    }
+}
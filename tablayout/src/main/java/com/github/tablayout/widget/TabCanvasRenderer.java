@@ -0,0 +1,562 @@
+package com.github.tablayout.widget;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Bundle;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.view.Gravity;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.accessibility.AccessibilityEvent;
+import android.widget.Button;
+
+import androidx.core.view.ViewCompat;
+import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
+import androidx.customview.widget.ExploreByTouchHelper;
+
+import com.github.tablayout.utils.DimensionUtils;
+import com.github.tablayout.utils.TabOffsets;
+
+import java.util.List;
+
+/**
+ * 不创建子View的tab绘制引擎:标题、图标和未读消息直接在宿主的onDraw中绘制,
+ * 点击通过onTouchEvent命中测试,无障碍通过虚拟View层级(ExploreByTouchHelper)提供
+ */
+public class TabCanvasRenderer {
+    private static final int TEXT_BOLD_NONE = 0;
+    private static final int TEXT_BOLD_WHEN_SELECT = 1;
+    private static final int TEXT_BOLD_BOTH = 2;
+    private static final int MSG_BACKGROUND_COLOR = Color.parseColor("#FD481F");
+
+    public interface Callback {
+        /**
+         * 当前选中的tab
+         */
+        int getSelectedTab();
+
+        /**
+         * tab被点击
+         */
+        void onTabClick(int position);
+    }
+
+    private final View mHost;
+    private final Callback mCallback;
+    private final TabOffsets mOffsets = new TabOffsets();
+    private final TabAccessibilityHelper mAccessibilityHelper;
+
+    private final TextPaint mTitlePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint mSelectedTitlePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint mMsgTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mMsgPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF mMsgRect = new RectF();
+    private final Rect mTempRect = new Rect();
+
+    private int mCount;
+    private CharSequence[] mTitles = new CharSequence[0];
+    private Drawable[] mIcons = new Drawable[0];
+    private Drawable[] mSelectedIcons = new Drawable[0];
+    private StaticLayout[] mLayouts = new StaticLayout[0];
+    private StaticLayout[] mSelectedLayouts = new StaticLayout[0];
+    /**
+     * 未读消息数,小于0不显示,等于0显示红点
+     */
+    private int[] mMsgNums = new int[0];
+    /**
+     * 未读消息显示的文字,在setMsg时生成,绘制时不再创建字符串
+     */
+    private String[] mMsgTexts = new String[0];
+    /**
+     * 未读消息文字的宽度,与文字一起在setMsg时计算
+     */
+    private float[] mMsgTextWidths = new float[0];
+    private int[] mMsgMarginLeft = new int[0];
+    private int[] mMsgMarginTop = new int[0];
+    private int mDefaultMsgMarginLeft;
+    private int mDefaultMsgMarginTop;
+
+    /* -- title -- */
+    private int mTextSelectColor;
+    private int mTextUnselectColor;
+    private boolean mTextAllCaps;
+
+    /* -- icon -- */
+    private boolean mIconVisible;
+    private int mIconGravity = Gravity.TOP;
+    private int mIconWidth;
+    private int mIconHeight;
+    private int mIconMargin;
+
+    /* -- bounds -- */
+    private int mLeft;
+    private int mTop;
+    private int mBottom;
+
+    /* -- touch -- */
+    private final int mTouchSlop;
+    private float mDownX;
+    private float mDownY;
+    private boolean mTapCandidate;
+
+    public TabCanvasRenderer(View host, Callback callback) {
+        this.mHost = host;
+        this.mCallback = callback;
+        this.mTouchSlop = ViewConfiguration.get(host.getContext()).getScaledTouchSlop();
+
+        mMsgTextPaint.setColor(Color.WHITE);
+        mMsgTextPaint.setTextSize(DimensionUtils.sp2px(host.getContext(), 11.5f));
+        mMsgTextPaint.setTextAlign(Paint.Align.CENTER);
+
+        mAccessibilityHelper = new TabAccessibilityHelper(host);
+        ViewCompat.setAccessibilityDelegate(host, mAccessibilityHelper);
+    }
+
+    /**
+     * 解除与宿主的无障碍关联
+     */
+    public void release() {
+        ViewCompat.setAccessibilityDelegate(mHost, null);
+    }
+
+    /**
+     * 设置tab数据
+     *
+     * @param titles        标题
+     * @param icons         未选中图标,可为null
+     * @param selectedIcons 选中图标,可为null
+     */
+    public void setTabs(CharSequence[] titles, Drawable[] icons, Drawable[] selectedIcons) {
+        mCount = titles.length;
+        mTitles = titles;
+        mIcons = icons == null ? new Drawable[mCount] : icons;
+        mSelectedIcons = selectedIcons == null ? new Drawable[mCount] : selectedIcons;
+        mLayouts = new StaticLayout[mCount];
+        mSelectedLayouts = new StaticLayout[mCount];
+        mMsgNums = new int[mCount];
+        mMsgTexts = new String[mCount];
+        mMsgTextWidths = new float[mCount];
+        mMsgMarginLeft = new int[mCount];
+        mMsgMarginTop = new int[mCount];
+        for (int i = 0; i < mCount; i++) {
+            mMsgNums[i] = -1;
+            mMsgMarginLeft[i] = mDefaultMsgMarginLeft;
+            mMsgMarginTop[i] = mDefaultMsgMarginTop;
+        }
+        mAccessibilityHelper.invalidateRoot();
+    }
+
+    /**
+     * 设置标题样式,会清空已缓存的StaticLayout
+     */
+    public void setTextStyle(float textSize, float selectedTextSize, int textSelectColor, int textUnselectColor,
+                             int textBold, boolean textAllCaps) {
+        mTitlePaint.setTextSize(textSize);
+        mSelectedTitlePaint.setTextSize(selectedTextSize);
+        mTitlePaint.setFakeBoldText(textBold == TEXT_BOLD_BOTH);
+        mSelectedTitlePaint.setFakeBoldText(textBold == TEXT_BOLD_BOTH || textBold == TEXT_BOLD_WHEN_SELECT);
+        this.mTextSelectColor = textSelectColor;
+        this.mTextUnselectColor = textUnselectColor;
+        this.mTextAllCaps = textAllCaps;
+        invalidateLayouts();
+    }
+
+    public void setIconStyle(boolean iconVisible, int iconGravity, float iconWidth, float iconHeight, float iconMargin) {
+        this.mIconVisible = iconVisible;
+        this.mIconGravity = iconGravity;
+        this.mIconWidth = (int) iconWidth;
+        this.mIconHeight = (int) iconHeight;
+        this.mIconMargin = (int) iconMargin;
+    }
+
+    /**
+     * 设置未读消息的默认偏移,参照点为tab内容的右上角
+     */
+    public void setDefaultMsgMargin(float leftPadding, float bottomPadding) {
+        this.mDefaultMsgMarginLeft = DimensionUtils.dp2px(mHost.getContext(), leftPadding);
+        this.mDefaultMsgMarginTop = -DimensionUtils.dp2px(mHost.getContext(), bottomPadding);
+    }
+
+    public void setMsgMargin(int position, float leftPadding, float bottomPadding) {
+        mMsgMarginLeft[position] = DimensionUtils.dp2px(mHost.getContext(), leftPadding);
+        mMsgMarginTop[position] = -DimensionUtils.dp2px(mHost.getContext(), bottomPadding);
+    }
+
+    /**
+     * @param num 小于0隐藏,等于0显示红点,大于0显示数字
+     */
+    public void setMsg(int position, int num) {
+        mMsgNums[position] = num;
+        mMsgTexts[position] = num <= 0 ? null : num < 100 ? String.valueOf(num) : "99+";
+        mMsgTextWidths[position] = num < 10 ? 0 : mMsgTextPaint.measureText(mMsgTexts[position]);
+        mAccessibilityHelper.invalidateVirtualView(position);
+    }
+
+    public int getMsg(int position) {
+        return mMsgNums[position];
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    public TabOffsets getOffsets() {
+        return mOffsets;
+    }
+
+    /**
+     * 计算每个tab的宽度
+     *
+     * @param availableWidth 容器宽度,仅用于tab等分
+     * @param tabSpaceEqual  tab等分
+     * @param tabWidth       tab固定宽度,大于0时生效
+     * @param tabPadding     tab左右padding
+     */
+    public void layoutTabs(int availableWidth, boolean tabSpaceEqual, float tabWidth, float tabPadding) {
+        mOffsets.setCount(mCount);
+        for (int i = 0; i < mCount; i++) {
+            int width;
+            if (tabWidth > 0) {
+                width = (int) tabWidth;
+            } else if (tabSpaceEqual) {
+                width = availableWidth * (i + 1) / mCount - availableWidth * i / mCount;
+            } else {
+                width = (int) Math.ceil(getContentWidth(i) + tabPadding * 2);
+            }
+            mOffsets.setWidth(i, width);
+        }
+        mOffsets.rebuild();
+    }
+
+    /**
+     * 设置tab区域在宿主中的位置(宿主内容坐标)
+     */
+    public void setBounds(int left, int top, int bottom) {
+        this.mLeft = left;
+        this.mTop = top;
+        this.mBottom = bottom;
+    }
+
+    /**
+     * tab内容所需的最大高度
+     */
+    public int getContentHeight() {
+        int height = 0;
+        for (int i = 0; i < mCount; i++) {
+            height = Math.max(height, getContentHeight(i, true));
+            height = Math.max(height, getContentHeight(i, false));
+        }
+        return height;
+    }
+
+    private void invalidateLayouts() {
+        for (int i = 0; i < mCount; i++) {
+            mLayouts[i] = null;
+            mSelectedLayouts[i] = null;
+        }
+    }
+
+    private CharSequence getDisplayTitle(int position) {
+        CharSequence title = mTitles[position] == null ? "" : mTitles[position];
+        return mTextAllCaps ? title.toString().toUpperCase() : title;
+    }
+
+    private StaticLayout getLayout(int position, boolean selected) {
+        StaticLayout[] layouts = selected ? mSelectedLayouts : mLayouts;
+        if (layouts[position] == null) {
+            TextPaint paint = selected ? mSelectedTitlePaint : mTitlePaint;
+            CharSequence title = getDisplayTitle(position);
+            int width = (int) Math.ceil(Layout.getDesiredWidth(title, paint));
+            layouts[position] = createLayout(title, paint, width);
+        }
+        return layouts[position];
+    }
+
+    @SuppressWarnings("deprecation")
+    private static StaticLayout createLayout(CharSequence text, TextPaint paint, int width) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            return StaticLayout.Builder.obtain(text, 0, text.length(), paint, width)
+                    .setAlignment(Layout.Alignment.ALIGN_NORMAL)
+                    .setLineSpacing(0f, 1f)
+                    .setIncludePad(false)
+                    .build();
+        }
+        return new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, false);
+    }
+
+    private Drawable getIcon(int position, boolean selected) {
+        if (!mIconVisible) {
+            return null;
+        }
+        return selected ? mSelectedIcons[position] : mIcons[position];
+    }
+
+    private int getIconWidth(Drawable icon) {
+        return icon == null ? 0 : (mIconWidth > 0 ? mIconWidth : icon.getIntrinsicWidth());
+    }
+
+    private int getIconHeight(Drawable icon) {
+        return icon == null ? 0 : (mIconHeight > 0 ? mIconHeight : icon.getIntrinsicHeight());
+    }
+
+    private float getContentWidth(int position) {
+        return Math.max(getContentWidth(position, false), getContentWidth(position, true));
+    }
+
+    private int getContentWidth(int position, boolean selected) {
+        int titleWidth = getLayout(position, selected).getWidth();
+        Drawable icon = getIcon(position, selected);
+        if (icon == null) {
+            return titleWidth;
+        }
+        int iconWidth = getIconWidth(icon);
+        if (mIconGravity == Gravity.LEFT || mIconGravity == Gravity.RIGHT) {
+            return titleWidth + mIconMargin + iconWidth;
+        }
+        return Math.max(titleWidth, iconWidth);
+    }
+
+    private int getContentHeight(int position, boolean selected) {
+        int titleHeight = getLayout(position, selected).getHeight();
+        Drawable icon = getIcon(position, selected);
+        if (icon == null) {
+            return titleHeight;
+        }
+        int iconHeight = getIconHeight(icon);
+        if (mIconGravity == Gravity.LEFT || mIconGravity == Gravity.RIGHT) {
+            return Math.max(titleHeight, iconHeight);
+        }
+        return titleHeight + mIconMargin + iconHeight;
+    }
+
+    /**
+     * 绘制所有tab
+     */
+    public void draw(Canvas canvas) {
+        draw(canvas, 0, mCount - 1);
+    }
+
+    /**
+     * 绘制[first, last]范围内的tab
+     */
+    public void draw(Canvas canvas, int first, int last) {
+        int selectedTab = mCallback.getSelectedTab();
+        for (int i = Math.max(0, first); i <= last && i < mCount; i++) {
+            drawTab(canvas, i, i == selectedTab);
+        }
+    }
+
+    private void drawTab(Canvas canvas, int position, boolean selected) {
+        StaticLayout layout = getLayout(position, selected);
+        Drawable icon = getIcon(position, selected);
+        int titleWidth = layout.getWidth();
+        int titleHeight = layout.getHeight();
+        int iconWidth = getIconWidth(icon);
+        int iconHeight = getIconHeight(icon);
+        int contentWidth = getContentWidth(position, selected);
+        int contentHeight = getContentHeight(position, selected);
+
+        int contentLeft = mLeft + mOffsets.getLeft(position) + (mOffsets.getWidth(position) - contentWidth) / 2;
+        int contentTop = mTop + (mBottom - mTop - contentHeight) / 2;
+
+        int titleLeft = contentLeft + (contentWidth - titleWidth) / 2;
+        int titleTop = contentTop + (contentHeight - titleHeight) / 2;
+        if (icon != null) {
+            int iconLeft = contentLeft + (contentWidth - iconWidth) / 2;
+            int iconTop = contentTop + (contentHeight - iconHeight) / 2;
+            if (mIconGravity == Gravity.LEFT) {
+                iconLeft = contentLeft;
+                titleLeft = contentLeft + iconWidth + mIconMargin;
+            } else if (mIconGravity == Gravity.RIGHT) {
+                titleLeft = contentLeft;
+                iconLeft = contentLeft + titleWidth + mIconMargin;
+            } else if (mIconGravity == Gravity.BOTTOM) {
+                titleTop = contentTop;
+                iconTop = contentTop + titleHeight + mIconMargin;
+            } else {
+                iconTop = contentTop;
+                titleTop = contentTop + iconHeight + mIconMargin;
+            }
+            icon.setBounds(iconLeft, iconTop, iconLeft + iconWidth, iconTop + iconHeight);
+            icon.draw(canvas);
+        }
+
+        layout.getPaint().setColor(selected ? mTextSelectColor : mTextUnselectColor);
+        canvas.save();
+        canvas.translate(titleLeft, titleTop);
+        layout.draw(canvas);
+        canvas.restore();
+
+        int num = mMsgNums[position];
+        if (num >= 0) {
+            drawMsg(canvas, num, mMsgTexts[position], mMsgTextWidths[position], contentLeft + contentWidth + mMsgMarginLeft[position], contentTop + mMsgMarginTop[position]);
+        }
+    }
+
+    /**
+     * 绘制未读消息,尺寸与UnreadMsgUtils保持一致
+     */
+    private void drawMsg(Canvas canvas, int num, String text, float textWidth, float left, float top) {
+        float density = mHost.getResources().getDisplayMetrics().density;
+        if (num <= 0) {
+            float size = 5 * density;
+            mMsgPaint.setStyle(Paint.Style.FILL);
+            mMsgPaint.setColor(MSG_BACKGROUND_COLOR);
+            canvas.drawCircle(left + size / 2, top + size / 2, size / 2, mMsgPaint);
+            return;
+        }
+
+        float height = 18 * density;
+        float width = num < 10 ? height : Math.max(height, textWidth + 12 * density);
+        mMsgRect.set(left, top, left + width, top + height);
+        mMsgPaint.setStyle(Paint.Style.FILL);
+        mMsgPaint.setColor(MSG_BACKGROUND_COLOR);
+        canvas.drawRoundRect(mMsgRect, height / 2, height / 2, mMsgPaint);
+        mMsgPaint.setStyle(Paint.Style.STROKE);
+        mMsgPaint.setStrokeWidth(density);
+        mMsgPaint.setColor(Color.WHITE);
+        canvas.drawRoundRect(mMsgRect, height / 2, height / 2, mMsgPaint);
+        float baseline = mMsgRect.centerY() - (mMsgTextPaint.descent() + mMsgTextPaint.ascent()) / 2;
+        canvas.drawText(text, mMsgRect.centerX(), baseline, mMsgTextPaint);
+    }
+
+    /**
+     * 命中测试
+     *
+     * @param x 宿主View坐标
+     * @param y 宿主View坐标
+     * @return tab位置, 未命中返回-1
+     */
+    public int hitTest(float x, float y) {
+        int contentX = (int) (x + mHost.getScrollX()) - mLeft;
+        if (mCount <= 0 || contentX < 0 || contentX >= mOffsets.getTotalWidth() || y < mTop || y > mBottom) {
+            return -1;
+        }
+        return mOffsets.indexAt(contentX);
+    }
+
+    /**
+     * 处理点击,宿主需要在onTouchEvent中调用
+     *
+     * @return 是否需要继续接收后续事件
+     */
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mDownX = event.getX();
+                mDownY = event.getY();
+                mTapCandidate = hitTest(mDownX, mDownY) >= 0;
+                return mTapCandidate;
+            case MotionEvent.ACTION_MOVE:
+                if (Math.abs(event.getX() - mDownX) > mTouchSlop || Math.abs(event.getY() - mDownY) > mTouchSlop) {
+                    mTapCandidate = false;
+                }
+                return mTapCandidate;
+            case MotionEvent.ACTION_UP:
+                if (mTapCandidate) {
+                    mTapCandidate = false;
+                    int position = hitTest(event.getX(), event.getY());
+                    if (position >= 0) {
+                        mCallback.onTabClick(position);
+                        mAccessibilityHelper.sendEventForVirtualView(position, AccessibilityEvent.TYPE_VIEW_CLICKED);
+                        return true;
+                    }
+                }
+                return false;
+            case MotionEvent.ACTION_CANCEL:
+                mTapCandidate = false;
+                return false;
+            default:
+                return mTapCandidate;
+        }
+    }
+
+    /**
+     * 选中状态变化时通知无障碍服务
+     */
+    public void notifySelectionChanged(int lastTab, int currentTab) {
+        if (lastTab >= 0 && lastTab < mCount) {
+            mAccessibilityHelper.invalidateVirtualView(lastTab);
+        }
+        if (currentTab >= 0 && currentTab < mCount) {
+            mAccessibilityHelper.invalidateVirtualView(currentTab);
+        }
+    }
+
+    public boolean dispatchHoverEvent(MotionEvent event) {
+        return mAccessibilityHelper.dispatchHoverEvent(event);
+    }
+
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        return mAccessibilityHelper.dispatchKeyEvent(event);
+    }
+
+    public void onFocusChanged(boolean gainFocus, int direction, Rect previouslyFocusedRect) {
+        mAccessibilityHelper.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+    }
+
+    private class TabAccessibilityHelper extends ExploreByTouchHelper {
+
+        TabAccessibilityHelper(View host) {
+            super(host);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            int position = hitTest(x, y);
+            return position < 0 ? INVALID_ID : position;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            if (mCount <= 0) {
+                return;
+            }
+            int first = mOffsets.indexAt(mHost.getScrollX() - mLeft);
+            if (first < 0) {
+                // 还未布局,没有可见的tab
+                return;
+            }
+            int last = mOffsets.indexAt(mHost.getScrollX() - mLeft + mHost.getWidth());
+            for (int i = first; i <= last; i++) {
+                virtualViewIds.add(i);
+            }
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId, AccessibilityNodeInfoCompat node) {
+            int left = mLeft + mOffsets.getLeft(virtualViewId) - mHost.getScrollX();
+            mTempRect.set(left, mTop, left + Math.max(1, mOffsets.getWidth(virtualViewId)), Math.max(mTop + 1, mBottom));
+            node.setBoundsInParent(mTempRect);
+            // 使用框架控件的类名,TalkBack才能播报可点击的角色
+            node.setClassName(Button.class.getName());
+            node.setText(getDisplayTitle(virtualViewId));
+            int num = mMsgNums[virtualViewId];
+            if (num > 0) {
+                node.setContentDescription(getDisplayTitle(virtualViewId) + ", " + num);
+            }
+            node.setClickable(true);
+            node.setSelected(virtualViewId == mCallback.getSelectedTab());
+            node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action, Bundle arguments) {
+            if (action == AccessibilityNodeInfoCompat.ACTION_CLICK) {
+                mCallback.onTabClick(virtualViewId);
+                sendEventForVirtualView(virtualViewId, AccessibilityEvent.TYPE_VIEW_CLICKED);
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.tablayout.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+
+/**
+ * tab图标来源,支持Drawable、Bitmap和Uri。Uri支持content、file、android.resource、http和https,
+ * Bitmap和Uri由TabIconLoader在后台线程按图标大小解码
+ */
+public final class TabIcon {
+    public static final int TYPE_DRAWABLE = 0;
+    public static final int TYPE_BITMAP = 1;
+    public static final int TYPE_URI = 2;
+
+    private final int mType;
+    private final Drawable mDrawable;
+    private final Bitmap mBitmap;
+    private final Uri mUri;
+
+    private TabIcon(int type, Drawable drawable, Bitmap bitmap, Uri uri) {
+        this.mType = type;
+        this.mDrawable = drawable;
+        this.mBitmap = bitmap;
+        this.mUri = uri;
+    }
+
+    public static TabIcon fromDrawable(Drawable drawable) {
+        if (drawable == null) {
+            throw new IllegalStateException("Drawable can not be NULL !");
+        }
+        return new TabIcon(TYPE_DRAWABLE, drawable, null, null);
+    }
+
+    public static TabIcon fromBitmap(Bitmap bitmap) {
+        if (bitmap == null) {
+            throw new IllegalStateException("Bitmap can not be NULL !");
+        }
+        return new TabIcon(TYPE_BITMAP, null, bitmap, null);
+    }
+
+    public static TabIcon fromUri(Uri uri) {
+        if (uri == null) {
+            throw new IllegalStateException("Uri can not be NULL !");
+        }
+        return new TabIcon(TYPE_URI, null, null, uri);
+    }
+
+    public static TabIcon fromUri(String uri) {
+        return fromUri(uri == null ? null : Uri.parse(uri));
+    }
+
+    public int getType() {
+        return mType;
+    }
+
+    public Drawable getDrawable() {
+        return mDrawable;
+    }
+
+    public Bitmap getBitmap() {
+        return mBitmap;
+    }
+
+    public Uri getUri() {
+        return mUri;
+    }
+
+    /**
+     * 缓存使用的key,Drawable不需要解码,返回null
+     */
+    public String getCacheKey() {
+        if (mType == TYPE_URI) {
+            return mUri.toString();
+        }
+        if (mType == TYPE_BITMAP) {
+            return "bitmap:" + System.identityHashCode(mBitmap) + ":" + mBitmap.getGenerationId();
+        }
+        return null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TabIcon)) {
+            return false;
+        }
+        TabIcon other = (TabIcon) o;
+        // Drawable和Bitmap只有同一个对象才视为相同
+        return mType == other.mType && mDrawable == other.mDrawable && mBitmap == other.mBitmap
+                && (mUri == null ? other.mUri == null : mUri.equals(other.mUri));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mType;
+        result = 31 * result + System.identityHashCode(mDrawable);
+        result = 31 * result + System.identityHashCode(mBitmap);
+        result = 31 * result + (mUri == null ? 0 : mUri.hashCode());
+        return result;
+    }
+}
@@ -0,0 +1,284 @@
+package com.github.tablayout.widget;
+
+import android.content.ComponentCallbacks2;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多个TabLayout共享的图标加载器,在后台线程把Bitmap和Uri图标解码并缩放到图标大小,
+ * 结果按字节数保存在LRU缓存中。相同图标和大小的请求只会解码一次,只能在主线程调用
+ */
+public class TabIconLoader implements ComponentCallbacks2 {
+    public interface Callback {
+        /**
+         * 图标加载完成,在主线程回调。加载失败时不回调,继续显示占位图
+         */
+        void onIconLoaded(Drawable icon);
+    }
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final int DEFAULT_THREAD_COUNT = 2;
+
+    private static TabIconLoader sDefault;
+
+    private final Resources mResources;
+    private final ContentResolver mContentResolver;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<String, Bitmap> mCache;
+    /**
+     * 正在解码的请求,key相同的回调合并到一起
+     */
+    private final HashMap<String, ArrayList<Callback>> mPending = new HashMap<>();
+    private Executor mExecutor;
+
+    /**
+     * 获取进程内共享的加载器,缓存大小为最大内存的1/32,会自动响应onTrimMemory
+     */
+    public static TabIconLoader getDefault(Context context) {
+        if (sDefault == null) {
+            Context appContext = context.getApplicationContext();
+            sDefault = new TabIconLoader(appContext, (int) Math.min(Runtime.getRuntime().maxMemory() / 32, Integer.MAX_VALUE));
+            appContext.registerComponentCallbacks(sDefault);
+        }
+        return sDefault;
+    }
+
+    /**
+     * @param maxCacheBytes 缓存的最大字节数
+     */
+    public TabIconLoader(Context context, int maxCacheBytes) {
+        if (maxCacheBytes <= 0) {
+            throw new IllegalStateException("maxCacheBytes must be greater than 0 !");
+        }
+        mResources = context.getResources();
+        mContentResolver = context.getContentResolver();
+        mCache = new LruCache<String, Bitmap>(maxCacheBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * 设置解码使用的线程池,默认使用2个线程
+     */
+    public void setExecutor(Executor executor) {
+        this.mExecutor = executor;
+    }
+
+    /**
+     * 修改缓存的最大字节数,超出的部分立即释放
+     */
+    public void setMaxCacheBytes(int maxCacheBytes) {
+        if (maxCacheBytes <= 0) {
+            throw new IllegalStateException("maxCacheBytes must be greater than 0 !");
+        }
+        mCache.resize(maxCacheBytes);
+    }
+
+    public int getMaxCacheBytes() {
+        return mCache.maxSize();
+    }
+
+    /**
+     * 获取当前缓存占用的字节数
+     */
+    public int getCacheBytes() {
+        return mCache.size();
+    }
+
+    /**
+     * 加载图标,width和height为图标的最大尺寸,解码结果等比缩放到其中
+     *
+     * @return 已经可用时直接返回图标并且不会回调,否则返回null并在加载完成后回调
+     */
+    public Drawable load(TabIcon icon, int width, int height, Callback callback) {
+        if (icon.getType() == TabIcon.TYPE_DRAWABLE) {
+            Drawable.ConstantState state = icon.getDrawable().getConstantState();
+            // 每个tab使用独立的Drawable,避免共享状态
+            return state == null ? icon.getDrawable() : state.newDrawable(mResources).mutate();
+        }
+        final String key = icon.getCacheKey() + "#" + width + "x" + height;
+        Bitmap cached = mCache.get(key);
+        if (cached != null) {
+            return new BitmapDrawable(mResources, cached);
+        }
+        ArrayList<Callback> callbacks = mPending.get(key);
+        if (callbacks != null) {
+            callbacks.add(callback);
+            return null;
+        }
+        callbacks = new ArrayList<>();
+        callbacks.add(callback);
+        mPending.put(key, callbacks);
+        try {
+            getExecutor().execute(() -> {
+                Bitmap bitmap = null;
+                try {
+                    bitmap = decode(icon, width, height);
+                } catch (IOException | RuntimeException | OutOfMemoryError ignored) {
+                    // 加载失败时保留占位图
+                }
+                final Bitmap result = bitmap;
+                mHandler.post(() -> deliver(key, result));
+            });
+        } catch (RejectedExecutionException e) {
+            mPending.remove(key);
+        }
+        return null;
+    }
+
+    /**
+     * 取消load的回调,解码仍会完成并加入缓存
+     */
+    public void cancel(Callback callback) {
+        for (ArrayList<Callback> callbacks : mPending.values()) {
+            callbacks.remove(callback);
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND) {
+            clear();
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            // 内存紧张时释放一半
+            mCache.trimToSize(mCache.size() / 2);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    private void deliver(String key, Bitmap bitmap) {
+        ArrayList<Callback> callbacks = mPending.remove(key);
+        if (bitmap == null || callbacks == null) {
+            return;
+        }
+        mCache.put(key, bitmap);
+        for (Callback callback : callbacks) {
+            callback.onIconLoaded(new BitmapDrawable(mResources, bitmap));
+        }
+    }
+
+    private Executor getExecutor() {
+        if (mExecutor == null) {
+            final AtomicInteger count = new AtomicInteger();
+            mExecutor = Executors.newFixedThreadPool(DEFAULT_THREAD_COUNT, r -> {
+                Thread thread = new Thread(r, "TabIconLoader-" + count.incrementAndGet());
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            });
+        }
+        return mExecutor;
+    }
+
+    /**
+     * 在后台线程解码,先读取尺寸计算采样率,再精确缩放到width和height以内
+     */
+    private Bitmap decode(TabIcon icon, int width, int height) throws IOException {
+        Bitmap decoded;
+        if (icon.getType() == TabIcon.TYPE_BITMAP) {
+            decoded = icon.getBitmap();
+        } else {
+            byte[] data = readBytes(icon.getUri());
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeByteArray(data, 0, data.length, options);
+            if (options.outWidth <= 0 || options.outHeight <= 0) {
+                return null;
+            }
+            options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, width, height);
+            options.inJustDecodeBounds = false;
+            decoded = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+            if (decoded == null) {
+                return null;
+            }
+        }
+        float scale = Math.min((float) width / decoded.getWidth(), (float) height / decoded.getHeight());
+        int scaledWidth = Math.max(1, Math.round(decoded.getWidth() * scale));
+        int scaledHeight = Math.max(1, Math.round(decoded.getHeight() * scale));
+        if (scaledWidth == decoded.getWidth() && scaledHeight == decoded.getHeight()) {
+            return decoded;
+        }
+        return Bitmap.createScaledBitmap(decoded, scaledWidth, scaledHeight, true);
+    }
+
+    /**
+     * 采样后的尺寸不小于目标尺寸的最大2的幂
+     */
+    private static int calculateInSampleSize(int outWidth, int outHeight, int width, int height) {
+        int sampleSize = 1;
+        while (outWidth / (sampleSize * 2) >= width && outHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private byte[] readBytes(Uri uri) throws IOException {
+        String scheme = uri.getScheme();
+        InputStream in;
+        HttpURLConnection connection = null;
+        if ("http".equals(scheme) || "https".equals(scheme)) {
+            connection = (HttpURLConnection) new URL(uri.toString()).openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout(CONNECT_TIMEOUT_MILLIS);
+            in = connection.getInputStream();
+        } else {
+            in = mContentResolver.openInputStream(uri);
+            if (in == null) {
+                throw new IOException("Unable to open " + uri);
+            }
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+}
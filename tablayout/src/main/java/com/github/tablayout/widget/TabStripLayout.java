@@ -0,0 +1,117 @@
+package com.github.tablayout.widget;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.view.View;
+import android.widget.LinearLayout;
+
+import com.github.tablayout.utils.TabOffsets;
+
+/**
+ * tab容器,默认与LinearLayout一致;设置宽度表后进入虚拟化模式,
+ * 只包含已绑定的tab,并按宽度表中的位置摆放
+ */
+public class TabStripLayout extends LinearLayout {
+    private TabOffsets mVirtualOffsets;
+
+    public TabStripLayout(Context context) {
+        super(context);
+    }
+
+    /**
+     * 设置虚拟化模式使用的宽度表,传null恢复为普通LinearLayout
+     *
+     * @param offsets 宽度表
+     */
+    public void setVirtualOffsets(TabOffsets offsets) {
+        this.mVirtualOffsets = offsets;
+        requestLayout();
+    }
+
+    public boolean isVirtualized() {
+        return mVirtualOffsets != null;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (mVirtualOffsets == null) {
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            return;
+        }
+
+        int totalWidth = mVirtualOffsets.getTotalWidth();
+        int width = MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.EXACTLY ?
+                Math.max(totalWidth, MeasureSpec.getSize(widthMeasureSpec)) : totalWidth;
+
+        int height;
+        if (MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.EXACTLY) {
+            height = MeasureSpec.getSize(heightMeasureSpec);
+        } else {
+            int maxHeight = 0;
+            for (int i = 0; i < getChildCount(); i++) {
+                View child = getChildAt(i);
+                measureTab(child, getChildMeasureSpec(heightMeasureSpec,
+                        getPaddingTop() + getPaddingBottom(), child.getLayoutParams().height));
+                maxHeight = Math.max(maxHeight, child.getMeasuredHeight());
+            }
+            height = resolveSize(Math.max(maxHeight + getPaddingTop() + getPaddingBottom(),
+                    getSuggestedMinimumHeight()), heightMeasureSpec);
+        }
+
+        int childHeightSpec = MeasureSpec.makeMeasureSpec(
+                Math.max(0, height - getPaddingTop() - getPaddingBottom()), MeasureSpec.EXACTLY);
+        for (int i = 0; i < getChildCount(); i++) {
+            measureTab(getChildAt(i), childHeightSpec);
+        }
+        setMeasuredDimension(width, height);
+    }
+
+    private void measureTab(View child, int heightMeasureSpec) {
+        LayoutParams lp = (LayoutParams) child.getLayoutParams();
+        child.measure(MeasureSpec.makeMeasureSpec(mVirtualOffsets.getWidth(lp.position), MeasureSpec.EXACTLY),
+                heightMeasureSpec);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        if (mVirtualOffsets == null) {
+            super.onLayout(changed, l, t, r, b);
+            return;
+        }
+
+        int top = getPaddingTop();
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            int left = getPaddingLeft() + mVirtualOffsets.getLeft(lp.position);
+            child.layout(left, top, left + child.getMeasuredWidth(), top + child.getMeasuredHeight());
+        }
+    }
+
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        // 软件绘制时每帧都会重绘所有tab,跳过滚动可见范围之外的tab;
+        // 硬件加速时tab的RenderNode在滚动中会被复用,不做处理
+        if (!canvas.isHardwareAccelerated() && getParent() instanceof View) {
+            View parent = (View) getParent();
+            int viewportLeft = parent.getScrollX() - getLeft();
+            int viewportRight = viewportLeft + parent.getWidth();
+            // 未读消息可能超出tab的范围,左右各多保留一个tab的宽度
+            if (child.getRight() + child.getWidth() < viewportLeft || child.getLeft() - child.getWidth() > viewportRight) {
+                return false;
+            }
+        }
+        return super.drawChild(canvas, child, drawingTime);
+    }
+
+    /**
+     * 虚拟化模式下使用的布局参数,记录tab对应的位置
+     */
+    public static class LayoutParams extends LinearLayout.LayoutParams {
+        public int position;
+
+        public LayoutParams(int width, int height) {
+            super(width, height);
+        }
+    }
+}
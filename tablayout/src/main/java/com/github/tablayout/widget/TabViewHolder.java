@@ -0,0 +1,62 @@
+package com.github.tablayout.widget;
+
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import com.github.tablayout.R;
+
+/**
+ * 缓存tab中的子View,创建tab时查找一次,之后通过itemView的tag获取,避免重复findViewById
+ */
+public class TabViewHolder {
+    public final View itemView;
+    public final TextView titleView;
+    /**
+     * 图标,不含图标的布局为null
+     */
+    public final ImageView iconView;
+    public final MsgView msgView;
+    /**
+     * tab当前所在的位置
+     */
+    public int position;
+    /**
+     * 当前图标对应的选中和未选中图标资源,未设置图标时为View.NO_ID
+     */
+    public int selectedIconRes = View.NO_ID;
+    public int unselectedIconRes = View.NO_ID;
+    /**
+     * 当前图标对应的IIconTab图标来源,不是IIconTab时为null
+     */
+    public TabIcon selectedIcon;
+    public TabIcon unselectedIcon;
+    /**
+     * 未完成的选中和未选中图标加载回调,tab回收或重新绑定时取消
+     */
+    public final TabIconLoader.Callback[] iconCallbacks = new TabIconLoader.Callback[2];
+
+    private TabViewHolder(View itemView) {
+        this.itemView = itemView;
+        this.titleView = itemView.findViewById(R.id.tv_tab_title);
+        this.iconView = itemView.findViewById(R.id.iv_tab_icon);
+        this.msgView = itemView.findViewById(R.id.rtv_msg_tip);
+    }
+
+    /**
+     * 为tab创建holder并保存到tag中
+     */
+    public static TabViewHolder create(View itemView, int position) {
+        TabViewHolder holder = new TabViewHolder(itemView);
+        holder.position = position;
+        itemView.setTag(holder);
+        return holder;
+    }
+
+    /**
+     * 获取tab对应的holder,tab为null时返回null
+     */
+    public static TabViewHolder get(View itemView) {
+        return itemView == null ? null : (TabViewHolder) itemView.getTag();
+    }
+}
@@ -0,0 +1,132 @@
+package com.github.tablayout.utils;
+
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * remap依赖SparseIntArray,使用Robolectric运行
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class TabDiffTest {
+    private static final int NO = TabDiff.NO_POSITION;
+
+    @Test
+    public void moveForward() {
+        // [a, b, c, d, e] -> [a, c, d, b, e]
+        assertArrayEquals(new int[]{0, 3, 1, 2, 4}, TabDiff.move(5, 1, 3));
+    }
+
+    @Test
+    public void moveBackward() {
+        // [a, b, c, d, e] -> [a, d, b, c, e]
+        assertArrayEquals(new int[]{0, 2, 3, 1, 4}, TabDiff.move(5, 3, 1));
+    }
+
+    @Test
+    public void moveToEnds() {
+        assertArrayEquals(new int[]{3, 0, 1, 2}, TabDiff.move(4, 0, 3));
+        assertArrayEquals(new int[]{1, 2, 3, 0}, TabDiff.move(4, 3, 0));
+    }
+
+    @Test
+    public void moveToSamePosition() {
+        assertArrayEquals(new int[]{0, 1, 2}, TabDiff.move(3, 1, 1));
+    }
+
+    @Test
+    public void moveMatchesListMove() {
+        List<Integer> items = Arrays.asList(0, 1, 2, 3, 4, 5);
+        for (int from = 0; from < items.size(); from++) {
+            for (int to = 0; to < items.size(); to++) {
+                ArrayList<Integer> moved = new ArrayList<>(items);
+                moved.add(to, moved.remove(from));
+                int[] oldToNew = TabDiff.move(items.size(), from, to);
+                for (int i = 0; i < items.size(); i++) {
+                    assertEquals("move " + from + " -> " + to, items.get(i), moved.get(oldToNew[i]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void insert() {
+        assertArrayEquals(new int[]{1, 2, 3}, TabDiff.insert(3, 0));
+        assertArrayEquals(new int[]{0, 2, 3}, TabDiff.insert(3, 1));
+        assertArrayEquals(new int[]{0, 1, 2}, TabDiff.insert(3, 3));
+    }
+
+    @Test
+    public void remove() {
+        assertArrayEquals(new int[]{NO, 0, 1}, TabDiff.remove(3, 0));
+        assertArrayEquals(new int[]{0, NO, 1}, TabDiff.remove(3, 1));
+        assertArrayEquals(new int[]{0, 1, NO}, TabDiff.remove(3, 2));
+    }
+
+    @Test
+    public void remapPositionFollowsTab() {
+        assertEquals(3, TabDiff.remapPosition(1, TabDiff.move(5, 1, 3), 5));
+        assertEquals(2, TabDiff.remapPosition(1, TabDiff.insert(3, 0), 4));
+        assertEquals(0, TabDiff.remapPosition(0, TabDiff.remove(3, 2), 2));
+    }
+
+    @Test
+    public void remapPositionWhenSelectedRemoved() {
+        // 选中的tab被移除时选中其后一个tab
+        assertEquals(1, TabDiff.remapPosition(1, TabDiff.remove(3, 1), 2));
+        // 移除最后一个tab时选中新的最后一个
+        assertEquals(1, TabDiff.remapPosition(2, TabDiff.remove(3, 2), 2));
+        // 选中位置超出旧数据范围
+        assertEquals(1, TabDiff.remapPosition(5, new int[]{0, 1}, 2));
+    }
+
+    @Test
+    public void remapSparseIntArray() {
+        SparseIntArray msgs = new SparseIntArray();
+        msgs.put(0, 10);
+        msgs.put(1, 11);
+        msgs.put(2, 12);
+        TabDiff.remap(msgs, TabDiff.remove(3, 1));
+        assertEquals(2, msgs.size());
+        assertEquals(10, msgs.get(0));
+        assertEquals(12, msgs.get(1));
+
+        TabDiff.remap(msgs, TabDiff.move(2, 0, 1));
+        assertEquals(12, msgs.get(0));
+        assertEquals(10, msgs.get(1));
+    }
+
+    @Test
+    public void remapDropsKeysOutOfRange() {
+        SparseIntArray msgs = new SparseIntArray();
+        msgs.put(-1, 1);
+        msgs.put(5, 5);
+        TabDiff.remap(msgs, new int[]{0, 1});
+        assertEquals(0, msgs.size());
+    }
+
+    @Test
+    public void remapSparseBooleanArray() {
+        SparseBooleanArray set = new SparseBooleanArray();
+        set.put(0, true);
+        set.put(2, true);
+        TabDiff.remap(set, TabDiff.insert(3, 1));
+        assertTrue(set.get(0));
+        assertFalse(set.get(2));
+        assertTrue(set.get(3));
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.tablayout.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TabOffsetsTest {
+
+    private static TabOffsets offsets(int... widths) {
+        TabOffsets offsets = new TabOffsets();
+        offsets.setCount(widths.length);
+        for (int i = 0; i < widths.length; i++) {
+            offsets.setWidth(i, widths[i]);
+        }
+        offsets.rebuild();
+        return offsets;
+    }
+
+    @Test
+    public void prefixSums() {
+        TabOffsets offsets = offsets(10, 20, 30);
+        assertEquals(0, offsets.getLeft(0));
+        assertEquals(10, offsets.getRight(0));
+        assertEquals(30, offsets.getLeft(2));
+        assertEquals(60, offsets.getRight(2));
+        assertEquals(60, offsets.getTotalWidth());
+    }
+
+    @Test
+    public void indexAtClampsToEnds() {
+        TabOffsets offsets = offsets(10, 20, 30);
+        assertEquals(0, offsets.indexAt(-5));
+        assertEquals(0, offsets.indexAt(9));
+        assertEquals(1, offsets.indexAt(10));
+        assertEquals(2, offsets.indexAt(59));
+        assertEquals(2, offsets.indexAt(1000));
+        assertEquals(-1, new TabOffsets().indexAt(0));
+    }
+
+    @Test
+    public void findRangeInsideStrip() {
+        TabOffsets offsets = offsets(10, 20, 30);
+        int[] range = new int[2];
+        assertTrue(offsets.findRange(5, 35, range));
+        assertArrayEquals(new int[]{0, 2}, range);
+        assertTrue(offsets.findRange(10, 30, range));
+        assertArrayEquals(new int[]{1, 1}, range);
+    }
+
+    @Test
+    public void findRangeEndIsExclusive() {
+        TabOffsets offsets = offsets(10, 20, 30);
+        int[] range = new int[2];
+        // 以tab右边界结束的范围不包含下一个tab
+        assertTrue(offsets.findRange(0, 10, range));
+        assertArrayEquals(new int[]{0, 0}, range);
+    }
+
+    @Test
+    public void findRangePastEndsOfStrip() {
+        TabOffsets offsets = offsets(10, 20, 30);
+        int[] range = new int[2];
+        assertTrue(offsets.findRange(-100, 100, range));
+        assertArrayEquals(new int[]{0, 2}, range);
+        assertTrue(offsets.findRange(50, 500, range));
+        assertArrayEquals(new int[]{2, 2}, range);
+    }
+
+    @Test
+    public void findRangeWithoutIntersection() {
+        TabOffsets offsets = offsets(10, 20, 30);
+        int[] range = new int[2];
+        assertFalse(offsets.findRange(60, 100, range));
+        assertFalse(offsets.findRange(-20, 0, range));
+        assertFalse(offsets.findRange(20, 20, range));
+        assertFalse(offsets.findRange(30, 20, range));
+        assertFalse(new TabOffsets().findRange(0, 100, range));
+    }
+
+    @Test
+    public void findRangeSkipsZeroWidthTabs() {
+        TabOffsets offsets = offsets(10, 0, 0, 10);
+        int[] range = new int[2];
+        assertTrue(offsets.findRange(10, 15, range));
+        assertArrayEquals(new int[]{3, 3}, range);
+    }
+
+    @Test
+    public void shrinkingCountReusesArrays() {
+        TabOffsets offsets = offsets(10, 20, 30);
+        offsets.setCount(1);
+        offsets.setWidth(0, 5);
+        offsets.rebuild();
+        assertEquals(1, offsets.getCount());
+        assertEquals(5, offsets.getTotalWidth());
+        int[] range = new int[2];
+        assertFalse(offsets.findRange(5, 50, range));
+    }
+}